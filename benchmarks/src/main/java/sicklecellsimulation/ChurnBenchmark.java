@@ -0,0 +1,49 @@
+package sicklecellsimulation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+// Births and deaths at a steady population size: 1% of the population is added with
+// PopulationStore.add and the same number of random individuals removed in one removeAll
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChurnBenchmark {
+    @Param({ "100", "1000", "10000", "100000", "1000000" })
+    int population;
+
+    private PopulationStore store;
+    private RandomGenerator random;
+    private int[] deaths;
+    private int turnover;
+
+    @Setup
+    public void setUp() {
+        store = Populations.store(population);
+        random = new RandomStreams(Populations.SEED).stream(1, RandomStreams.DRIFT, 0);
+        turnover = Math.max(1, population / 100);
+        deaths = new int[turnover];
+    }
+
+    @Benchmark
+    public int churn() {
+        int n = store.size;
+        store.ensureCapacity(n + turnover);
+        for (int i = 0; i < turnover; i++) {
+            int parent = random.nextInt(n);
+            store.add(store.genotype[parent], store.x[parent], store.y[parent], 0, 0, PedigreeStore.NO_PARENT);
+        }
+        // distinct victims: one from each of `turnover` equal stripes
+        int stripe = store.size / turnover;
+        for (int i = 0; i < turnover; i++) {
+            deaths[i] = i * stripe + random.nextInt(stripe);
+        }
+        store.removeAll(deaths, turnover);
+        return store.size;
+    }
+}
@@ -0,0 +1,68 @@
+package sicklecellsimulation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+// Offspring genotypes: `population` births, each from two random parents and getRandomAllele
+// from each. `offspring` picks parents the old way, retrying rejected SS draws; `offspringBuckets`
+// the engine's way, with a ParentSampler built once per call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InheritanceBenchmark {
+    @Param({ "100", "1000", "10000", "100000", "1000000" })
+    int population;
+
+    @Param({ "30", "100" })
+    int sickleStart;
+
+    private PopulationStore store;
+    private Individual cursor;
+    private RandomGenerator random;
+    private final ParentSampler parents = new ParentSampler();
+    private final int[] counts = new int[3];
+
+    @Setup
+    public void setUp() {
+        store = new SimulationEngine(Populations.config(population).setSickleStartPercent(sickleStart)).getStore();
+        cursor = new Individual(store, 0);
+        random = new RandomStreams(Populations.SEED).stream(1, RandomStreams.BIRTHS, 0);
+        for (int i = 0; i < store.size; i++) counts[store.genotype[i]]++;
+    }
+
+    @Benchmark
+    public long offspring() {
+        byte[] genotypes = store.genotype;
+        int n = store.size;
+        long sAlleles = 0;
+        for (int b = 0; b < n; b++) {
+            int parent1, parent2;
+            do {
+                parent1 = random.nextInt(n);
+            } while (genotypes[parent1] == PopulationStore.SS && random.nextDouble() < 0.8);
+            do {
+                parent2 = random.nextInt(n);
+            } while (genotypes[parent2] == PopulationStore.SS && random.nextDouble() < 0.8);
+            sAlleles += cursor.at(parent1).getRandomAllele(random) + cursor.at(parent2).getRandomAllele(random);
+        }
+        return sAlleles;
+    }
+
+    @Benchmark
+    public long offspringBuckets() {
+        int n = store.size;
+        parents.build(store, n, counts);
+        long sAlleles = 0;
+        for (int b = 0; b < n; b++) {
+            int parent1 = parents.draw(random);
+            int parent2 = parents.draw(random);
+            sAlleles += cursor.at(parent1).getRandomAllele(random) + cursor.at(parent2).getRandomAllele(random);
+        }
+        return sAlleles;
+    }
+}
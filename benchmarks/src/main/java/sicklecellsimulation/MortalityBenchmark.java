@@ -0,0 +1,62 @@
+package sicklecellsimulation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+// The mortality roll over the whole population, every individual rolled: `rollModel` asks the
+// fitness model each time, `rollTable` looks the risk up in the compiled FitnessTable the
+// engine uses
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MortalityBenchmark {
+    @Param({ "100", "1000", "10000", "100000", "1000000" })
+    int population;
+
+    private PopulationStore store;
+    private SimulationConfig config;
+    private FitnessTable table;
+    private RandomGenerator random;
+
+    @Setup
+    public void setUp() {
+        config = Populations.config(population);
+        store = Populations.store(population);
+        table = new FitnessTable(FitnessModel.DEFAULT, config);
+        RandomGenerator ages = new RandomStreams(Populations.SEED).stream(1, RandomStreams.MORTALITY, 1);
+        for (int i = 0; i < store.size; i++) store.age[i] = ages.nextInt(40);
+        random = new RandomStreams(Populations.SEED).stream(1, RandomStreams.MORTALITY, 0);
+    }
+
+    @Benchmark
+    public int rollModel() {
+        byte[] genotypes = store.genotype;
+        int[] ages = store.age;
+        int deaths = 0;
+        for (int i = 0; i < store.size; i++) {
+            if (random.nextDouble() < FitnessModel.DEFAULT.deathProbability(config, genotypes[i], ages[i])) {
+                deaths++;
+            }
+        }
+        return deaths;
+    }
+
+    @Benchmark
+    public int rollTable() {
+        byte[] genotypes = store.genotype;
+        int[] ages = store.age;
+        double[] risk = table.risk;
+        int deaths = 0;
+        for (int i = 0; i < store.size; i++) {
+            if (random.nextDouble() < risk[FitnessTable.index(genotypes[i], ages[i])]) {
+                deaths++;
+            }
+        }
+        return deaths;
+    }
+}
@@ -0,0 +1,39 @@
+package sicklecellsimulation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One movement pass as the serial engine does it: rebuild the grid, then moveSmoothly for
+// everyone
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovementBenchmark {
+    @Param({ "100", "1000", "10000", "100000", "1000000" })
+    int population;
+
+    private PopulationStore store;
+    private Individual cursor;
+    private final SpatialGrid grid = new SpatialGrid();
+    private int side;
+
+    @Setup
+    public void setUp() {
+        store = Populations.store(population);
+        cursor = new Individual(store, 0);
+        side = Populations.side(population);
+    }
+
+    @Benchmark
+    public float move() {
+        grid.rebuild(store.x, store.y, store.size, side, side);
+        for (int i = 0; i < store.size; i++) {
+            cursor.at(i).moveSmoothly(side, side, grid);
+        }
+        return store.x[0];
+    }
+}
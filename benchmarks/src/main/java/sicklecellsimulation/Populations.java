@@ -0,0 +1,54 @@
+package sicklecellsimulation;
+
+// Fixtures shared by the benchmarks. Every population is drawn from a fixed seed so runs are
+// comparable, and the world grows with the population so density stays the same at every size.
+final class Populations {
+    static final long SEED = 20250427L;
+
+    private Populations() {
+    }
+
+    static int side(int population) {
+        return Math.max(200, (int) Math.sqrt(population * 400.0)); // about 400 px² per person
+    }
+
+    static SimulationConfig config(int population) {
+        int side = side(population);
+        return new SimulationConfig()
+                .setSeed(SEED)
+                .setPopulationSize(population)
+                .setSickleStartPercent(30)
+                .setAllowGrowth(true)
+                .setReproductionRate(0.05)
+                .setDeathRate(0.05)
+                .setMutationRate(0.0001)
+                .setGeneticDrift(true)
+                .setMovement(false)
+                .setPedigree(PedigreeRetention.NONE)
+                .setSize(side, side);
+    }
+
+    static PopulationStore store(int population) {
+        return new SimulationEngine(config(population)).getStore();
+    }
+
+    // A pedigree of `size` births over overlapping generations of `population` people, with
+    // parents drawn from the current generation like the engine does
+    static PedigreeSnapshot pedigree(int size, int population) {
+        PedigreeStore store = new PedigreeStore(PedigreeRetention.FULL, Integer.MAX_VALUE);
+        var random = new RandomStreams(SEED).stream(0, RandomStreams.BIRTHS, 0);
+        int founders = Math.min(size, population);
+        for (int i = 0; i < founders; i++) {
+            store.add((byte) random.nextInt(3), PedigreeStore.NO_PARENT, PedigreeStore.NO_PARENT, 0);
+        }
+        int[] living = new int[founders];
+        for (int i = 0; i < founders; i++) living[i] = i;
+        for (int id = founders; id < size; id++) {
+            int mother = living[random.nextInt(founders)];
+            int father = living[random.nextInt(founders)];
+            byte genotype = (byte) ((store.genotype[mother] + store.genotype[father] + random.nextInt(2)) / 2);
+            living[random.nextInt(founders)] = store.add(genotype, mother, father, id / founders);
+        }
+        return store.snapshot(living, founders);
+    }
+}
@@ -0,0 +1,37 @@
+package sicklecellsimulation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Whole generations through PopulationModel.step(), in ticks per second. This is the number to
+// watch for regressions; the other benchmarks break it down by pass.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    @Param({ "100", "1000", "10000", "100000", "1000000" })
+    int population;
+
+    @Param({ "AGENT", "AGGREGATE" })
+    SimulationMode mode;
+
+    @Param({ "false", "true" })
+    boolean movement;
+
+    private PopulationModel model;
+
+    @Setup
+    public void setUp() {
+        model = PopulationModel.create(Populations.config(population).setMode(mode).setMovement(movement));
+    }
+
+    @Benchmark
+    public int tick() {
+        model.step();
+        return model.getGenerationCount();
+    }
+}
@@ -0,0 +1,63 @@
+package sicklecellsimulation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// FamilyTreePanel's layout work: a full TreeLayout of a pedigree with `nodes` entries, and the
+// incremental update when the next 1% of births arrives. Both lay out the tree the viewer
+// opens on, under the root ancestor of the living; a founder may have no descendants at all.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeLayoutBenchmark {
+    private static final int GENERATION_SIZE = 100;
+
+    @Param({ "100", "1000", "10000", "100000", "1000000" })
+    int nodes;
+
+    private PedigreeSnapshot pedigree;
+    private int root;
+
+    @Setup
+    public void setUp() {
+        pedigree = Populations.pedigree(nodes, GENERATION_SIZE);
+        root = pedigree.rootOf(pedigree.living(0));
+    }
+
+    @Benchmark
+    public int layout() {
+        return new TreeLayout(pedigree, root).nodeCount();
+    }
+
+    @Benchmark
+    public int update(Incremental state) {
+        state.layout.update(state.grown);
+        return state.layout.nodeCount();
+    }
+
+    // Every update needs a layout that has not seen the new births yet
+    @State(Scope.Thread)
+    public static class Incremental {
+        PedigreeSnapshot pedigree;
+        PedigreeSnapshot grown;
+        int root;
+        TreeLayout layout;
+
+        @Setup(Level.Trial)
+        public void setUp(TreeLayoutBenchmark benchmark) {
+            pedigree = benchmark.pedigree;
+            root = benchmark.root;
+            // the same births plus the next 1%
+            grown = Populations.pedigree(benchmark.nodes + Math.max(1, benchmark.nodes / 100), GENERATION_SIZE);
+        }
+
+        @Setup(Level.Invocation)
+        public void freshLayout() {
+            layout = new TreeLayout(pedigree, root);
+        }
+    }
+}
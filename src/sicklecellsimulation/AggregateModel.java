@@ -0,0 +1,225 @@
+package sicklecellsimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// Count-only version of SimulationEngine. Instead of individuals it keeps how many people are
+// in each (genotype, age) class and moves whole classes at once with
+// binomial and multinomial draws, so a step costs the same for a hundred people as for a
+// billion. It applies the same rules as the agent engine, in the same order: ageing, mutation,
+// births capped per tick with SS parents accepted 20% of the time, mortality and drift deaths
+// drawn for every class at once (at most 10% and 5% of the population per tick), never below
+// 10 people.
+// The two modes agree closely but not exactly: over a few hundred generations the mean S allele
+// frequency here sits about 0.002-0.003 below the agent engine's (about 1.5 standard errors at
+// 40 replicates). `SickleCellBatch compare` measures the gap.
+public class AggregateModel implements PopulationModel {
+    static final int AGES = FitnessTable.AGES; // ages 0..30 kept apart, the last class is everyone over 30
+    private static final int ADULT_AGE = 5; // used for every class when age is not tracked
+    private static final double[] S_ALLELES = {0, 0.5, 1}; // chance of passing S, by genotype
+
+    private final SimulationConfig config;
+    private final RandomStreams streams;
+    private final List<SimulationListener> listeners = new ArrayList<>();
+    private final int ages;
+    // counts[genotype * ages + age]; mutation moves people between genotypes
+    private final long[] counts;
+    private final double[] weights;
+    private final double[] mortality; // death risk per class, from the fitness model
+    private final long[] dead;
+    private int generationCount;
+    private boolean geneticDrift;
+
+    public AggregateModel(SimulationConfig config) {
+        this.config = config.copy();
+        this.streams = new RandomStreams(config.getSeed());
+        this.ages = config.isAgeClasses() ? AGES : 1;
+        this.counts = new long[3 * ages];
+        this.dead = new long[3 * ages];
+        this.weights = new double[3 * ages];
+        this.mortality = new double[3 * ages];
+        setFitnessModel(FitnessModel.DEFAULT);
+        this.geneticDrift = config.isGeneticDrift();
+        populate();
+    }
+
+    private int index(int genotype, int age) {
+        return genotype * ages + age;
+    }
+
+    private int ageOf(int index) {
+        return ages == 1 ? ADULT_AGE : index % ages;
+    }
+
+    private int genotypeOf(int index) {
+        return index / ages;
+    }
+
+    // Same split as SimulationEngine.getRandomGenotype, drawn for the whole population at once
+    private void populate() {
+        int percent = config.getSickleStartPercent();
+        double[] p = new double[3];
+        if (percent >= 100) {
+            p[PopulationStore.AS] = 0.5;
+            p[PopulationStore.SS] = 0.5;
+        } else if (percent <= 0) {
+            p[PopulationStore.AA] = 1;
+        } else {
+            p[PopulationStore.SS] = (percent / 2) / 100.0;
+            p[PopulationStore.AS] = (percent - percent / 2) / 100.0;
+            p[PopulationStore.AA] = 1 - percent / 100.0;
+        }
+        long[] drawn = new long[3];
+        Sampling.multinomial(streams.stream(0, RandomStreams.POPULATE, 0), config.getPopulationSize(), p, drawn);
+        for (int g = 0; g < 3; g++) {
+            counts[index(g, 0)] = drawn[g];
+        }
+    }
+
+    @Override
+    public void step() {
+        generationCount++;
+
+        if (ages > 1) {
+            for (int cls = 0; cls < 3; cls++) {
+                int base = cls * ages;
+                counts[base + ages - 1] += counts[base + ages - 2];
+                System.arraycopy(counts, base, counts, base + 1, ages - 2);
+                counts[base] = 0;
+            }
+        }
+
+        mutate(streams.stream(generationCount, RandomStreams.MUTATION, 0));
+
+        if (config.isAllowGrowth()) {
+            // Saturates rather than wraps: an uncapped run levels off at Long.MAX_VALUE people
+            long population = getPopulationSize();
+            long births = Math.min(SimulationEngine.birthsThisTick(config, population), Long.MAX_VALUE - population);
+            reproduce(births, streams.stream(generationCount, RandomStreams.BIRTHS, 0));
+        }
+
+        long deathLimit = (long) (getPopulationSize() * 0.1);
+        if (deathLimit > 0) {
+            killAll(mortality, deathLimit, streams.stream(generationCount, RandomStreams.MORTALITY, 0));
+        }
+
+        long driftLimit = (long) (getPopulationSize() * 0.05);
+        if (geneticDrift && driftLimit > 0) {
+            double chance = SimulationEngine.driftChance(getPopulationSize());
+            for (int i = 0; i < counts.length; i++) {
+                weights[i] = chance;
+            }
+            killAll(weights, driftLimit, streams.stream(generationCount, RandomStreams.DRIFT, 0));
+        }
+
+        long healthy = getHealthyCount(), carriers = getCarrierCount(), sickle = getSickleCellCount();
+        for (SimulationListener listener : listeners) {
+            listener.generationCompleted(generationCount, healthy, carriers, sickle);
+        }
+    }
+
+    // AA -> AS and AS -> SS, each at most once per person per tick
+    private void mutate(RandomGenerator rng) {
+        double rate = config.getMutationRate();
+        for (int a = 0; a < ages; a++) {
+            long fromAA = Sampling.binomial(rng, counts[index(PopulationStore.AA, a)], rate);
+            long fromAS = Sampling.binomial(rng, counts[index(PopulationStore.AS, a)], rate);
+            counts[index(PopulationStore.AA, a)] -= fromAA;
+            counts[index(PopulationStore.AS, a)] += fromAA - fromAS;
+            counts[index(PopulationStore.SS, a)] += fromAS;
+        }
+    }
+
+    // Parents are drawn by genotype with the engine's mating weights (SS at 0.2),
+    // so every parent passes S with the same probability q and the offspring are Hardy-Weinberg
+    // in q.
+    private void reproduce(long births, RandomGenerator rng) {
+        if (births <= 0) return;
+        double weighted = 0, sAlleles = 0;
+        for (int g = 0; g < 3; g++) {
+            long n = countGenotype(g);
+            double w = SimulationEngine.matingWeight(g);
+            weighted += n * w;
+            sAlleles += n * w * S_ALLELES[g];
+        }
+        if (weighted == 0) return;
+        double q = sAlleles / weighted;
+        long[] born = new long[3];
+        Sampling.multinomial(rng, births, new double[]{(1 - q) * (1 - q), 2 * q * (1 - q), q * q}, born);
+        for (int g = 0; g < 3; g++) {
+            counts[index(g, 0)] += born[g];
+        }
+    }
+
+    // Mirrors the engine's batch sampling: every class loses a binomial draw at its own
+    // probability, all in one go. When that comes to more than the cap (or would leave fewer
+    // than 10 people) the deaths are thinned back to the cap, class by class, each keeping its
+    // share of what is left, as the engine keeps a random subset of its sampled deaths.
+    private void killAll(double[] probability, long cap, RandomGenerator rng) {
+        cap = Math.min(cap, getPopulationSize() - 10); // Prevent total wipeout
+        if (cap <= 0) return;
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            dead[i] = Sampling.binomial(rng, counts[i], probability[i]);
+            total += dead[i];
+        }
+        if (total > cap) {
+            long left = total;
+            long keep = cap;
+            for (int i = 0; i < counts.length && left > 0; i++) {
+                long chosen = Math.min(dead[i], Sampling.binomial(rng, keep, (double) dead[i] / left));
+                left -= dead[i];
+                dead[i] = chosen;
+                keep -= chosen;
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= dead[i];
+        }
+    }
+
+    private long countGenotype(int genotype) {
+        long total = 0;
+        for (int a = 0; a < ages; a++) total += counts[index(genotype, a)];
+        return total;
+    }
+
+    public void setGeneticDrift(boolean geneticDrift) {
+        this.geneticDrift = geneticDrift;
+    }
+
+    @Override
+    public void setFitnessModel(FitnessModel model) {
+        FitnessTable table = new FitnessTable(model, config);
+        for (int i = 0; i < counts.length; i++) {
+            mortality[i] = table.risk(genotypeOf(i), ageOf(i));
+        }
+    }
+
+    public long getSeed() {
+        return streams.seed();
+    }
+
+    @Override public int getGenerationCount() { return generationCount; }
+    @Override public long getHealthyCount() { return countGenotype(PopulationStore.AA); }
+    @Override public long getCarrierCount() { return countGenotype(PopulationStore.AS); }
+    @Override public long getSickleCellCount() { return countGenotype(PopulationStore.SS); }
+
+    @Override
+    public long getPopulationSize() {
+        long total = 0;
+        for (long c : counts) total += c;
+        return total;
+    }
+
+    @Override
+    public void addListener(SimulationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SimulationListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,79 @@
+package sicklecellsimulation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// --key=value command line options for the batch tools. A bare --flag means true. Rates are in
+// percent, like the fields in the GUI.
+class BatchOptions {
+    private final Map<String, String> values = new HashMap<>();
+
+    BatchOptions(String[] args, int from) {
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+    }
+
+    boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    String get(String key, String fallback) {
+        return values.getOrDefault(key, fallback);
+    }
+
+    int getInt(String key, int fallback) {
+        return has(key) ? Integer.parseInt(values.get(key)) : fallback;
+    }
+
+    long getLong(String key, long fallback) {
+        return has(key) ? Long.parseLong(values.get(key)) : fallback;
+    }
+
+    double getDouble(String key, double fallback) {
+        return has(key) ? Double.parseDouble(values.get(key)) : fallback;
+    }
+
+    boolean getBoolean(String key, boolean fallback) {
+        return has(key) ? Boolean.parseBoolean(values.get(key)) : fallback;
+    }
+
+    String remove(String key) {
+        return values.remove(key);
+    }
+
+    // Starts from the GUI defaults, or from --region's preset. Batch runs skip the visual
+    // physics and the family tree unless asked for.
+    SimulationConfig toConfig() {
+        SimulationConfig defaults = new SimulationConfig();
+        if (has("region")) RegionPreset.named(get("region", "")).applyTo(defaults);
+        return defaults.copy()
+                .setMode(SimulationMode.valueOf(get("mode", "agent").toUpperCase()))
+                .setPopulationSize(getInt("population", defaults.getPopulationSize()))
+                .setSickleStartPercent(getInt("start", defaults.getSickleStartPercent()))
+                .setAllowGrowth(getBoolean("growth", defaults.isAllowGrowth()))
+                .setReproductionRate(getDouble("reproduction", defaults.getReproductionRate() * 100) / 100)
+                .setMaxBirthsPerTick(getInt("birth-cap", defaults.getMaxBirthsPerTick()))
+                .setDeathRate(getDouble("death", defaults.getDeathRate() * 100) / 100)
+                .setMutationRate(getDouble("mutation", defaults.getMutationRate() * 100) / 100)
+                .setHealthcareAvailable(getBoolean("healthcare", defaults.isHealthcareAvailable()))
+                .setMalariaRegion(getBoolean("malaria", defaults.isMalariaRegion()))
+                .setMalariaMap(getBoolean("malaria-map", defaults.isMalariaMap()))
+                .setGeneticDrift(getBoolean("drift", defaults.isGeneticDrift()))
+                .setAgeClasses(getBoolean("age-classes", defaults.isAgeClasses()))
+                .setMovement(getBoolean("movement", false))
+                .setPedigree(PedigreeRetention.valueOf(get("pedigree", "none").replace('-', '_').toUpperCase()))
+                .setPedigreeDepth(getInt("pedigree-depth", defaults.getPedigreeDepth()))
+                .setParallel(getBoolean("parallel", false))
+                .setSeed(getLong("seed", defaults.getSeed()));
+    }
+}
@@ -0,0 +1,182 @@
+package sicklecellsimulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Everything a SimulationEngine needs to carry on bit for bit: the config (with the current
+// drift and malaria map toggles and size), the generation count, the counts, the living
+// population, the pedigree and the malaria field. Take one with engine.checkpoint() and
+// continue with resume().
+//
+// On disk it is MAGIC, VERSION and a deflated body: the config as properties text, then the
+// numbers and arrays above in that order.
+public class Checkpoint {
+    private static final int MAGIC = 0x5343_434B; // "SCCK"
+    private static final int VERSION = 3; // 1 also stored a separate mutation status, 2 had no malaria field
+
+    final SimulationConfig config;
+    final int generation;
+    final int healthy, carriers, sickle;
+    final PopulationStore store;
+    final PedigreeStore pedigree; // null when the run keeps none
+    final float[] malaria; // the MalariaField's cells, null when there is none
+
+    Checkpoint(SimulationConfig config, int generation, int healthy, int carriers, int sickle,
+               PopulationStore store, PedigreeStore pedigree, float[] malaria) {
+        this.config = config;
+        this.generation = generation;
+        this.healthy = healthy;
+        this.carriers = carriers;
+        this.sickle = sickle;
+        this.store = store;
+        this.pedigree = pedigree;
+        this.malaria = malaria;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public SimulationConfig getConfig() {
+        return config.copy();
+    }
+
+    // A new engine each call; the checkpoint itself is never modified
+    public SimulationEngine resume() {
+        return new SimulationEngine(this);
+    }
+
+    // Written to a temporary file first and moved into place, so a crash part way through
+    // leaves the previous checkpoint intact
+    public void write(Path path) throws IOException {
+        Path partial = path.resolveSibling(path.getFileName() + ".partial");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(partial))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            DataOutputStream body = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(out, deflater, 1 << 16), 1 << 16));
+            writeBody(body);
+            body.close();
+        } finally {
+            deflater.end();
+        }
+        Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeBody(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        config.toProperties().store(text, null);
+        out.writeInt(text.size());
+        text.writeTo(out);
+
+        out.writeInt(generation);
+        out.writeInt(healthy);
+        out.writeInt(carriers);
+        out.writeInt(sickle);
+
+        int n = store.size;
+        out.writeInt(n);
+        out.write(store.genotype, 0, n);
+        for (int i = 0; i < n; i++) out.writeInt(store.age[i]);
+        for (int i = 0; i < n; i++) out.writeFloat(store.x[i]);
+        for (int i = 0; i < n; i++) out.writeFloat(store.y[i]);
+        for (int i = 0; i < n; i++) out.writeFloat(store.vx[i]);
+        for (int i = 0; i < n; i++) out.writeFloat(store.vy[i]);
+        out.writeBoolean(store.tracksPedigree());
+        if (store.tracksPedigree()) {
+            for (int i = 0; i < n; i++) out.writeInt(store.pedigreeId[i]);
+        }
+
+        out.writeBoolean(pedigree != null);
+        if (pedigree != null) {
+            int size = pedigree.size;
+            out.writeInt(size);
+            out.writeInt(pedigree.epoch);
+            out.writeInt(pedigree.retainedAtLastPrune);
+            for (int i = 0; i < size; i++) out.writeInt(pedigree.parent1[i]);
+            for (int i = 0; i < size; i++) out.writeInt(pedigree.parent2[i]);
+            for (int i = 0; i < size; i++) out.writeInt(pedigree.birthGeneration[i]);
+            out.write(pedigree.genotype, 0, size);
+        }
+
+        out.writeBoolean(malaria != null);
+        if (malaria != null) {
+            out.writeInt(malaria.length);
+            for (float value : malaria) out.writeFloat(value);
+        }
+    }
+
+    public static Checkpoint read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != MAGIC) throw new IOException(path + " is not a checkpoint");
+            int version = in.readInt();
+            if (version < 2 || version > VERSION) throw new IOException(path + ": unsupported checkpoint version " + version);
+            return readBody(new DataInputStream(new BufferedInputStream(new InflaterInputStream(in), 1 << 16)), version);
+        }
+    }
+
+    private static Checkpoint readBody(DataInputStream in, int version) throws IOException {
+        byte[] text = new byte[in.readInt()];
+        in.readFully(text);
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(text));
+        SimulationConfig config = SimulationConfig.fromProperties(properties);
+
+        int generation = in.readInt();
+        int healthy = in.readInt();
+        int carriers = in.readInt();
+        int sickle = in.readInt();
+
+        int n = in.readInt();
+        PopulationStore store = new PopulationStore(false, n);
+        store.size = n;
+        in.readFully(store.genotype, 0, n);
+        for (int i = 0; i < n; i++) store.age[i] = in.readInt();
+        for (int i = 0; i < n; i++) store.x[i] = in.readFloat();
+        for (int i = 0; i < n; i++) store.y[i] = in.readFloat();
+        for (int i = 0; i < n; i++) store.vx[i] = in.readFloat();
+        for (int i = 0; i < n; i++) store.vy[i] = in.readFloat();
+        if (in.readBoolean()) {
+            store.pedigreeId = new int[store.capacity()];
+            for (int i = 0; i < n; i++) store.pedigreeId[i] = in.readInt();
+        }
+
+        PedigreeStore pedigree = null;
+        if (in.readBoolean()) {
+            pedigree = new PedigreeStore(config.getPedigree(), config.getPedigreeDepth());
+            int size = in.readInt();
+            pedigree.epoch = in.readInt();
+            pedigree.retainedAtLastPrune = in.readInt();
+            int capacity = Math.max(64, size);
+            pedigree.parent1 = new int[capacity];
+            pedigree.parent2 = new int[capacity];
+            pedigree.birthGeneration = new int[capacity];
+            pedigree.genotype = new byte[capacity];
+            for (int i = 0; i < size; i++) pedigree.parent1[i] = in.readInt();
+            for (int i = 0; i < size; i++) pedigree.parent2[i] = in.readInt();
+            for (int i = 0; i < size; i++) pedigree.birthGeneration[i] = in.readInt();
+            in.readFully(pedigree.genotype, 0, size);
+            pedigree.size = size;
+        }
+
+        float[] malaria = null;
+        if (version >= 3 && in.readBoolean()) {
+            malaria = new float[in.readInt()];
+            for (int i = 0; i < malaria.length; i++) malaria[i] = in.readFloat();
+        }
+        return new Checkpoint(config, generation, healthy, carriers, sickle, store, pedigree, malaria);
+    }
+}
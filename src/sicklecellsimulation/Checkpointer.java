@@ -0,0 +1,76 @@
+package sicklecellsimulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Checkpoints an engine every `interval` generations. Add it to the same engine as a listener.
+// The state is copied on the simulation thread at the end of the tick and written by a
+// background thread, so the run only pauses for the copy. If the previous write is still
+// going when the next one is due, that checkpoint is skipped rather than queued.
+public class Checkpointer implements SimulationListener, Closeable {
+    private final SimulationEngine engine;
+    private final Path path;
+    private final int interval;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pending;
+    private volatile IOException failure;
+    private int skipped;
+
+    public Checkpointer(SimulationEngine engine, Path path, int interval) {
+        if (!engine.isCheckpointable()) throw new IllegalStateException("a custom fitness model cannot be checkpointed");
+        this.engine = engine;
+        this.path = path;
+        this.interval = Math.max(1, interval);
+    }
+
+    @Override
+    public void generationCompleted(int generation, long healthy, long carriers, long sickle) {
+        if (generation % interval == 0) save();
+    }
+
+    // Checkpoints now. Call it on the thread that steps the engine, between ticks. Does nothing
+    // once closed.
+    public synchronized void save() {
+        if (writer.isShutdown()) return;
+        if (pending != null && !pending.isDone()) {
+            skipped++;
+            return;
+        }
+        Checkpoint checkpoint = engine.checkpoint();
+        pending = writer.submit(() -> {
+            try {
+                checkpoint.write(path);
+            } catch (IOException e) {
+                failure = e;
+            }
+        });
+    }
+
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    // Waits for the write in progress, if any. Any thread can close while the engine still ticks:
+    // a save racing it either gets its copy queued first or sees the writer shut down.
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            writer.shutdown();
+        }
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) throw failure;
+    }
+}
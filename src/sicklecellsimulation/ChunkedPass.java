@@ -0,0 +1,63 @@
+package sicklecellsimulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Runs a pass over [0, n) in fixed-size chunks. With a pool the chunks are split recursively
+// into fork-join tasks so idle workers can steal them; without one they run in order on the
+// calling thread. Chunk boundaries depend only on n, never on the number of threads, so any
+// per-chunk result is the same however the work gets scheduled.
+class ChunkedPass {
+    static final int CHUNK_SIZE = 16_384;
+
+    interface Body {
+        void run(int chunk, int from, int to);
+    }
+
+    static int chunks(int n) {
+        return chunks(n, CHUNK_SIZE);
+    }
+
+    static int chunks(int n, int chunkSize) {
+        return (n + chunkSize - 1) / chunkSize;
+    }
+
+    static void run(ForkJoinPool pool, int n, Body body) {
+        run(pool, n, CHUNK_SIZE, body);
+    }
+
+    // For passes whose unit is bigger than one element, e.g. whole rows of a grid
+    static void run(ForkJoinPool pool, int n, int chunkSize, Body body) {
+        int chunks = chunks(n, chunkSize);
+        if (pool == null || chunks <= 1) {
+            for (int c = 0; c < chunks; c++) {
+                body.run(c, c * chunkSize, Math.min(n, (c + 1) * chunkSize));
+            }
+        } else {
+            pool.invoke(new Task(body, n, chunkSize, 0, chunks));
+        }
+    }
+
+    private static class Task extends RecursiveAction {
+        private final Body body;
+        private final int n, chunkSize, firstChunk, endChunk;
+
+        Task(Body body, int n, int chunkSize, int firstChunk, int endChunk) {
+            this.body = body;
+            this.n = n;
+            this.chunkSize = chunkSize;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - firstChunk == 1) {
+                body.run(firstChunk, firstChunk * chunkSize, Math.min(n, endChunk * chunkSize));
+                return;
+            }
+            int mid = (firstChunk + endChunk) >>> 1;
+            invokeAll(new Task(body, n, chunkSize, firstChunk, mid), new Task(body, n, chunkSize, mid, endChunk));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sicklecellsimulation;
+
+import java.io.PrintStream;
+
+// Summary of an ensemble run: per reported generation, the spread of genotype counts and of the
+// S allele frequency across replicates, plus what became of the S allele by the end.
+public class EnsembleResult {
+    final int[] generations;
+    final RunningStats[] healthy, carriers, sickle, frequency;
+    final FrequencyHistogram[] frequencyHistograms;
+    int replicates;
+    int fixed;       // replicates that ended with only S alleles
+    int lost;        // replicates that ended with no S alleles
+    final RunningStats lossGeneration = new RunningStats(); // first generation S was gone
+    long wallClockNanos;
+    long generationsRun;
+
+    EnsembleResult(int[] generations) {
+        this.generations = generations;
+        int rows = generations.length;
+        healthy = new RunningStats[rows];
+        carriers = new RunningStats[rows];
+        sickle = new RunningStats[rows];
+        frequency = new RunningStats[rows];
+        frequencyHistograms = new FrequencyHistogram[rows];
+        for (int i = 0; i < rows; i++) {
+            healthy[i] = new RunningStats();
+            carriers[i] = new RunningStats();
+            sickle[i] = new RunningStats();
+            frequency[i] = new RunningStats();
+            frequencyHistograms[i] = new FrequencyHistogram();
+        }
+    }
+
+    void merge(EnsembleResult other) {
+        for (int i = 0; i < generations.length; i++) {
+            healthy[i].merge(other.healthy[i]);
+            carriers[i].merge(other.carriers[i]);
+            sickle[i].merge(other.sickle[i]);
+            frequency[i].merge(other.frequency[i]);
+            frequencyHistograms[i].merge(other.frequencyHistograms[i]);
+        }
+        replicates += other.replicates;
+        fixed += other.fixed;
+        lost += other.lost;
+        lossGeneration.merge(other.lossGeneration);
+        generationsRun += other.generationsRun;
+    }
+
+    public int getReplicates() { return replicates; }
+    public double getFixationProbability() { return replicates == 0 ? Double.NaN : (double) fixed / replicates; }
+    public double getExtinctionProbability() { return replicates == 0 ? Double.NaN : (double) lost / replicates; }
+    public double getMeanExtinctionGeneration() { return lossGeneration.mean(); }
+    public double getWallClockSeconds() { return wallClockNanos / 1e9; }
+
+    // Replicate-generations simulated per second of wall-clock time
+    public double getThroughput() {
+        return wallClockNanos == 0 ? 0 : generationsRun / (wallClockNanos / 1e9);
+    }
+
+    public void print(PrintStream out) {
+        out.println("generation\thealthy_mean\thealthy_sd\tcarriers_mean\tcarriers_sd\tsickle_mean\tsickle_sd"
+                + "\tfreq_mean\tfreq_sd\tfreq_p05\tfreq_p50\tfreq_p95");
+        for (int i = 0; i < generations.length; i++) {
+            out.printf("%d\t%.2f\t%.2f\t%.2f\t%.2f\t%.2f\t%.2f\t%.4f\t%.4f\t%.4f\t%.4f\t%.4f%n",
+                    generations[i],
+                    healthy[i].mean(), healthy[i].stdDev(),
+                    carriers[i].mean(), carriers[i].stdDev(),
+                    sickle[i].mean(), sickle[i].stdDev(),
+                    frequency[i].mean(), frequency[i].stdDev(),
+                    frequencyHistograms[i].quantile(0.05),
+                    frequencyHistograms[i].quantile(0.5),
+                    frequencyHistograms[i].quantile(0.95));
+        }
+        out.printf("# replicates=%d fixation=%.4f extinction=%.4f mean_extinction_generation=%.1f%n",
+                replicates, getFixationProbability(), getExtinctionProbability(), getMeanExtinctionGeneration());
+        out.printf("# wall_clock=%.2fs throughput=%.0f replicate-generations/s%n",
+                getWallClockSeconds(), getThroughput());
+    }
+}
@@ -0,0 +1,127 @@
+package sicklecellsimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs many independent replicates of one configuration across a fixed thread pool. Each worker
+// pulls replicate numbers from a shared counter and folds every reported generation straight into
+// its own accumulators, so no trajectory is ever stored; the workers' summaries are merged at the
+// end. Replicate r is seeded with RandomStreams.replicateSeed(seed, r), so the result does not
+// depend on the thread count.
+public class EnsembleRunner {
+    private final SimulationConfig config;
+    private final int replicates;
+    private final int generations;
+    private int reportInterval;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public EnsembleRunner(SimulationConfig config, int replicates, int generations) {
+        this.config = config.copy().setParallel(false); // parallelism is across replicates
+        this.replicates = replicates;
+        this.generations = generations;
+        this.reportInterval = Math.max(1, generations / 1000);
+    }
+
+    public EnsembleRunner setReportInterval(int reportInterval) {
+        this.reportInterval = Math.max(1, reportInterval);
+        return this;
+    }
+
+    public EnsembleRunner setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    public EnsembleResult run() throws InterruptedException {
+        int[] reported = reportedGenerations();
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<EnsembleResult>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    EnsembleResult partial = new EnsembleResult(reported);
+                    for (int r = next.getAndIncrement(); r < replicates; r = next.getAndIncrement()) {
+                        runReplicate(r, partial);
+                    }
+                    return partial;
+                }));
+            }
+
+            EnsembleResult result = new EnsembleResult(reported);
+            for (Future<EnsembleResult> worker : workers) {
+                result.merge(worker.get());
+            }
+            result.wallClockNanos = System.nanoTime() - start;
+            return result;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Replicate failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // All replicates on the calling thread, for callers that already parallelise over something else
+    EnsembleResult runInline() {
+        long start = System.nanoTime();
+        EnsembleResult result = new EnsembleResult(reportedGenerations());
+        for (int r = 0; r < replicates; r++) {
+            runReplicate(r, result);
+        }
+        result.wallClockNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private int[] reportedGenerations() {
+        int rows = (generations + reportInterval - 1) / reportInterval;
+        int[] reported = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            reported[i] = Math.min(generations, (i + 1) * reportInterval);
+        }
+        return reported;
+    }
+
+    private void runReplicate(int replicate, EnsembleResult into) {
+        SimulationConfig replicateConfig = config.copy()
+                .setSeed(RandomStreams.replicateSeed(config.getSeed(), replicate));
+        PopulationModel model = PopulationModel.create(replicateConfig);
+        int lastRow = into.generations.length - 1;
+        boolean[] lost = new boolean[1];
+
+        model.addListener((generation, healthy, carriers, sickle) -> {
+            double frequency = sAlleleFrequency(healthy, carriers, sickle);
+            if (!lost[0] && carriers + sickle == 0) {
+                lost[0] = true;
+                into.lossGeneration.add(generation);
+            }
+            int row = generation % reportInterval == 0 ? generation / reportInterval - 1
+                    : generation == generations ? lastRow : -1;
+            if (row < 0) return;
+            into.healthy[row].add(healthy);
+            into.carriers[row].add(carriers);
+            into.sickle[row].add(sickle);
+            into.frequency[row].add(frequency);
+            into.frequencyHistograms[row].add(frequency);
+        });
+        model.step(generations);
+
+        into.replicates++;
+        into.generationsRun += generations;
+        if (model.getPopulationSize() > 0) {
+            if (model.getCarrierCount() + model.getSickleCellCount() == 0) into.lost++;
+            if (model.getHealthyCount() + model.getCarrierCount() == 0) into.fixed++;
+        }
+    }
+
+    static double sAlleleFrequency(long healthy, long carriers, long sickle) {
+        long total = healthy + carriers + sickle;
+        return total == 0 ? 0 : (carriers + 2.0 * sickle) / (2.0 * total);
+    }
+}
@@ -2,26 +2,22 @@ package sicklecellsimulation;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
 
+// Draws a TreeLayout. All the layout work happens in update(); paint only reads coordinates
+// and never changes the component's size.
 public class FamilyTreePanel extends JPanel {
-    private final Individual root;
+    private static final int MARGIN = 50;
+    private static final Color SECOND_PARENT_EDGE = new Color(200, 200, 200);
+    private static final int NODE_REACH = 30;       // node circle plus its label, in layout units
+    private static final double MIN_NODE_PIXELS = 8;
+    private static final double COLLAPSE_PIXELS = 48;
+    private static final int GLYPH_HEIGHT = 24;
+
+    private final TreeLayout layout;
     private double scale = 1.0;
 
-    private int minX = Integer.MAX_VALUE;
-    private int maxX = Integer.MIN_VALUE;
-    private int minY = Integer.MAX_VALUE;
-    private int maxY = Integer.MIN_VALUE;
-    private static final int VERTICAL_SPACING = 80;
-
-
-
-
-
-
-    public FamilyTreePanel(Individual root) {
-        this.root = root;
+    public FamilyTreePanel(PedigreeSnapshot pedigree, int root) {
+        this.layout = new TreeLayout(pedigree, root);
         updatePreferredSize();
 
         addMouseWheelListener(e -> {
@@ -29,148 +25,142 @@ public class FamilyTreePanel extends JPanel {
                 double zoomFactor = e.getPreciseWheelRotation() < 0 ? 1.1 : 0.9;
                 scale *= zoomFactor;
                 scale = Math.max(0.1, Math.min(scale, 5.0)); // Clamp zoom
-                revalidate();
-                repaint();
+                updatePreferredSize();
             }
         });
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        if (root == null) return;
-
-        // Reset bounds
-        minX = Integer.MAX_VALUE;
-        maxX = Integer.MIN_VALUE;
-        minY = Integer.MAX_VALUE;
-        maxY = Integer.MIN_VALUE;
-
-        int centerX = getWidth() / 2;
-        int centerY = 50;
-
-        drawIndividual(g, root, centerX, centerY);
-
-        setPreferredSize(new Dimension((maxX - minX) + 400, (maxY - minY) + 200));
-        revalidate();
-
+    // Newer snapshot of the same run, e.g. polled while the simulation keeps going
+    public void update(PedigreeSnapshot pedigree) {
+        layout.update(pedigree);
+        updatePreferredSize();
     }
 
     private void updatePreferredSize() {
-        int depth = getDepth(root);
-        int width = getMaxChildrenAtAnyLevel(root) * 100;
-
-        int scaledWidth = (int) (width * scale);
-        int scaledHeight = (int) (depth * 120 * scale);
+        int scaledWidth = (int) ((layout.width() + 2 * MARGIN) * scale);
+        int scaledHeight = (int) ((layout.height() + 2 * MARGIN) * scale);
 
         setPreferredSize(new Dimension(scaledWidth, scaledHeight));
         revalidate();
         repaint();
     }
-    private int getMaxChildrenAtAnyLevel(Individual root) {
-        if (root == null) return 0;
-        int[] levels = new int[getDepth(root)];
-        countAtEachLevel(root, 0, levels);
-        int max = 0;
-        for (int count : levels) {
-            max = Math.max(max, count);
-        }
-        return max;
-    }
 
-    private void countAtEachLevel(Individual node, int level, int[] levels) {
-        if (node == null) return;
-        levels[level]++;
-        for (Individual child : node.getChildren()) {
-            countAtEachLevel(child, level + 1, levels);
+    // Only what intersects the clip is drawn: the visible rows come from the clip's y range and
+    // the nodes in each row from a binary search on x. When zoomed out far enough that nodes
+    // would be under MIN_NODE_PIXELS apart, any subtree narrower than COLLAPSE_PIXELS on screen
+    // becomes one glyph with its genotype counts, and nothing below it is visited.
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.scale(scale, scale);
+        g2.translate(MARGIN, MARGIN);
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(-MARGIN, -MARGIN, layout.width() + 2 * MARGIN, layout.height() + 2 * MARGIN);
         }
-    }
 
-    private int getDepth(Individual ind) {
-        if (ind == null || ind.getChildren().isEmpty()) return 1;
+        boolean detailed = TreeLayout.SLOT * scale >= MIN_NODE_PIXELS;
+        // a subtree is collapsed when its span, size * SLOT * scale, is under COLLAPSE_PIXELS
+        int collapseSize = detailed ? 0 : (int) Math.ceil(COLLAPSE_PIXELS / (TreeLayout.SLOT * scale));
 
-        int max = 0;
-        for (Individual child : ind.getChildren()) {
-            max = Math.max(max, getDepth(child));
+        int deepestRow = layout.maxDepth();
+        for (int d = 0; d < deepestRow; d++) {
+            if (layout.rowMaxSubtreeSize(d) < collapseSize) {
+                deepestRow = d; // every node below this row is inside a collapsed subtree
+                break;
+            }
         }
-        return max + 1;
-    }
-
-    private Color getColor(String genotype) {
-        return switch (genotype) {
-            case "AA" -> Color.BLUE;
-            case "AS" -> new Color(128, 0, 128);
-            case "SS" -> Color.RED;
-            default -> Color.GRAY;
-        };
-    }
-    private void drawIndividual(Graphics g, Individual ind, int x, int y) {
-        minX = Math.min(minX, x);
-        maxX = Math.max(maxX, x);
-        minY = Math.min(minY, y);
-        maxY = Math.max(maxY, y);
-
-        if (ind == null) return;
-
-        // Draw current node
-        drawNode(g, ind, x, y);
-
-        // Base case: no children
-        if (ind.getChildren().isEmpty()) return;
-
-        // Layout children proportionally based on subtree size
-        int totalWidth = 0;
-        Map<Individual, Integer> subtreeWidths = new HashMap<>();
-        for (Individual child : ind.getChildren()) {
-            int width = child.getSubtreeSize();
-            subtreeWidths.put(child, width);
-            totalWidth += width;
+        int firstRow = Math.max(0, (clip.y - NODE_REACH) / TreeLayout.VERTICAL_SPACING);
+        int lastRow = Math.min(deepestRow, (clip.y + clip.height + NODE_REACH) / TreeLayout.VERTICAL_SPACING + 1);
+
+        // Edges are found from their child end. Each row knows how far its edges reach sideways
+        // and which rows they span, so a row is searched only as widely as its longest edge and
+        // each edge is drawn only if its extent meets the clip.
+        PedigreeSnapshot pedigree = layout.pedigree();
+        for (int d = 1; d <= deepestRow; d++) {
+            if (layout.rowEdgeTop(d) * TreeLayout.VERTICAL_SPACING > clip.y + clip.height
+                    || layout.rowEdgeBottom(d) * TreeLayout.VERTICAL_SPACING < clip.y) continue;
+            int reach = layout.rowEdgeReach(d);
+            for (int k = layout.rowSearch(d, clip.x - reach); k < layout.rowEnd(d); k++) {
+                int id = layout.rowNode(k);
+                if (layout.x(id) > clip.x + clip.width + reach) break;
+                int parent = layout.treeParent(id);
+                if (layout.subtreeSize(parent) < collapseSize) continue; // inside a glyph
+                if (detailed) {
+                    int other = pedigree.parent1(id) == parent ? pedigree.parent2(id) : pedigree.parent1(id);
+                    if (other >= 0 && other != parent && layout.contains(other) && crosses(clip, other, id)) {
+                        g2.setColor(SECOND_PARENT_EDGE);
+                        g2.drawLine(layout.x(other), layout.y(other), layout.x(id), layout.y(id));
+                    }
+                }
+                if (crosses(clip, parent, id)) {
+                    g2.setColor(Color.BLACK);
+                    g2.drawLine(layout.x(parent), layout.y(parent), layout.x(id), layout.y(id));
+                }
+            }
         }
 
-        int childX = x - totalWidth * 20 / 2; // center the group of children
-
-        for (Individual child : ind.getChildren()) {
-            int width = subtreeWidths.get(child);
-            int centerX = childX + (width * 25 / 2);
-
-            // draw edge
-            g.drawLine(x, y, centerX, y + VERTICAL_SPACING);
-
-            // recurse
-            drawIndividual(g, child, centerX, y + VERTICAL_SPACING);
-
-            childX += width * 20;
+        // Nodes on top; glyphs can be up to COLLAPSE_PIXELS wide, so widen the search by that
+        int reach = Math.max(NODE_REACH, (int) (COLLAPSE_PIXELS / scale));
+        for (int d = firstRow; d <= lastRow; d++) {
+            for (int k = layout.rowSearch(d, clip.x - reach); k < layout.rowEnd(d); k++) {
+                int id = layout.rowNode(k);
+                int x = layout.x(id);
+                if (x > clip.x + clip.width + reach) break;
+                int parent = layout.treeParent(id);
+                if (parent >= 0 && layout.subtreeSize(parent) < collapseSize) continue;
+
+                if (layout.subtreeSize(id) < collapseSize) {
+                    drawGlyph(g2, id, x, layout.y(id));
+                } else if (detailed) {
+                    drawNode(g2, pedigree.genotype(id), x, layout.y(id));
+                } else {
+                    g2.setColor(GenotypePalette.of(pedigree.genotype(id)));
+                    g2.fillOval(x - 10, layout.y(id) - 10, 20, 20);
+                }
+            }
         }
+        g2.dispose();
     }
 
-    private void drawNode(Graphics g, Individual ind, int x, int y) {
-        String genotype = ind.getGenotype();
+    // Whether the bounding box of the line between two nodes meets the clip
+    private boolean crosses(Rectangle clip, int from, int to) {
+        int x1 = layout.x(from), x2 = layout.x(to), y1 = layout.y(from), y2 = layout.y(to);
+        return Math.min(x1, x2) <= clip.x + clip.width && Math.max(x1, x2) >= clip.x
+                && Math.min(y1, y2) <= clip.y + clip.height && Math.max(y1, y2) >= clip.y;
+    }
 
-        // Choose color based on genotype
-        switch (genotype) {
-            case "AA":
-                g.setColor(Color.BLUE);
-                break;
-            case "AS":
-                g.setColor(new Color(128, 0, 128)); // purple
-                break;
-            case "SS":
-                g.setColor(Color.RED);
-                break;
-            default:
-                g.setColor(Color.GRAY);
-                break;
+    // A collapsed subtree: a bar as wide as the subtree's span, split by AA/AS/SS share
+    private void drawGlyph(Graphics2D g, int id, int x, int y) {
+        int size = layout.subtreeSize(id);
+        int width = Math.max(TreeLayout.SLOT / 2, size * TreeLayout.SLOT - TreeLayout.SLOT / 4);
+        int left = x - width / 2;
+        int top = y - GLYPH_HEIGHT / 2;
+
+        int offset = 0;
+        for (int genotype = 0; genotype < 3; genotype++) {
+            int count = layout.subtreeCount(id, genotype);
+            int segment = genotype == 2 ? width - offset : (int) ((long) width * count / size);
+            g.setColor(GenotypePalette.COLORS[genotype]);
+            g.fillRect(left + offset, top, segment, GLYPH_HEIGHT);
+            offset += segment;
+        }
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect(left, top, width, GLYPH_HEIGHT);
+        if (width * scale >= 40) {
+            g.drawString(String.valueOf(size), left, top - 4);
         }
+    }
+
+    private void drawNode(Graphics g, byte genotype, int x, int y) {
+        g.setColor(GenotypePalette.of(genotype));
 
         // Draw the circle
         g.fillOval(x - 10, y - 10, 20, 20);
 
         // Draw label (genotype)
         g.setColor(Color.BLACK);
-        g.drawString(genotype, x - 12, y - 15);
+        g.drawString(PopulationStore.name(genotype), x - 12, y - 15);
     }
-
-
-
-
 }
@@ -0,0 +1,12 @@
+package sicklecellsimulation;
+
+// The selection rules: how likely someone is to die in a tick, by genotype and age. Models are
+// never asked per individual; the engine and the aggregate model compile one into a
+// FitnessTable when they start or when it is swapped, so a new scenario costs nothing more per
+// tick. Ages above FitnessTable.AGES - 1 are asked as that age.
+public interface FitnessModel {
+    FitnessModel DEFAULT = new MalariaFitness();
+
+    // Chance per tick, before the per-tick death cap
+    double deathProbability(SimulationConfig config, int genotype, int age);
+}
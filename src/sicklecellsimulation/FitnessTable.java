@@ -0,0 +1,51 @@
+package sicklecellsimulation;
+
+// A FitnessModel compiled for one config: death risk per (genotype, age) in flat arrays, so the
+// mortality pass does one lookup per individual instead of running the model's rules. Ages
+// from AGES - 1 up share the last bucket, which is exact for models where risk stops changing
+// with age there (the default changes at 5 and past 30). The last bucket is also old age: what
+// it risks beyond the bucket before it is counted as dying of age in the metrics.
+//
+// In a malaria region the table also keeps how much of each risk is malaria, found by asking
+// the model again with the region switched off, so a MalariaField can scale that part by
+// place.
+final class FitnessTable {
+    static final int AGES = 32;
+
+    final double[] risk = new double[3 * AGES];
+    final double[] oldAge = new double[3 * AGES]; // the part of risk that is old age
+    final double[] malaria = new double[3 * AGES]; // the part of risk that is malaria, at full intensity
+    private double max;
+
+    FitnessTable(FitnessModel model, SimulationConfig config) {
+        SimulationConfig noMalaria = config.isMalariaRegion() ? config.copy().setMalariaRegion(false) : null;
+        for (int g = 0; g < 3; g++) {
+            for (int age = 0; age < AGES; age++) {
+                int i = index(g, age);
+                risk[i] = probability(model, config, g, age);
+                oldAge[i] = age < AGES - 1 ? 0 : Math.max(0, risk[i] - risk[i - 1]);
+                if (noMalaria != null) {
+                    malaria[i] = Math.max(0, risk[i] - probability(model, noMalaria, g, age));
+                }
+                max = Math.max(max, risk[i]);
+            }
+        }
+    }
+
+    private static double probability(FitnessModel model, SimulationConfig config, int genotype, int age) {
+        return Math.max(0, Math.min(1, model.deathProbability(config, genotype, age)));
+    }
+
+    static int index(int genotype, int age) {
+        return genotype * AGES + Math.min(age, AGES - 1);
+    }
+
+    double risk(int genotype, int age) {
+        return risk[index(genotype, age)];
+    }
+
+    // Highest risk of anyone, the rate the engine's skip sampling runs at
+    double max() {
+        return max;
+    }
+}
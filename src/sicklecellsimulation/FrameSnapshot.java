@@ -0,0 +1,46 @@
+package sicklecellsimulation;
+
+// What the view needs to draw one generation, copied out of the engine on the simulation thread.
+// Snapshots are recycled between the two threads (see SimulationRunner), so the arrays are only
+// filled while the simulation thread owns the snapshot and are read-only once it is published.
+final class FrameSnapshot {
+    int generation;
+    long healthy, carriers, sickle;
+    int size;
+    float[] x = new float[0];
+    float[] y = new float[0];
+    byte[] genotype = new byte[0]; // PopulationStore.AA, AS or SS per individual
+    // The malaria field, when there is one; only copied again when its version moved on
+    int malariaCols, malariaRows, malariaVersion = -1;
+    float[] malaria;
+
+    void copyFrom(SimulationEngine engine) {
+        PopulationStore store = engine.getStore();
+        size = store.size();
+        if (x.length < size) {
+            int capacity = Math.max(size, x.length * 2);
+            x = new float[capacity];
+            y = new float[capacity];
+            genotype = new byte[capacity];
+        }
+        System.arraycopy(store.x, 0, x, 0, size);
+        System.arraycopy(store.y, 0, y, 0, size);
+        System.arraycopy(store.genotype, 0, genotype, 0, size);
+        MalariaField field = engine.getMalariaField();
+        if (field == null) {
+            malaria = null;
+        } else if (malaria == null || malariaVersion != field.version() || malariaCols != field.cols
+                || malariaRows != field.rows) {
+            float[] values = field.values();
+            if (malaria == null || malaria.length != values.length) malaria = new float[values.length];
+            System.arraycopy(values, 0, malaria, 0, values.length);
+            malariaCols = field.cols;
+            malariaRows = field.rows;
+            malariaVersion = field.version();
+        }
+        generation = engine.getGenerationCount();
+        healthy = engine.getHealthyCount();
+        carriers = engine.getCarrierCount();
+        sickle = engine.getSickleCellCount();
+    }
+}
@@ -0,0 +1,36 @@
+package sicklecellsimulation;
+
+// Fixed-bin histogram over [0, 1] for allele frequencies. Quantiles come from the bins, so they
+// are accurate to one bin width, but histograms from different threads merge exactly.
+class FrequencyHistogram {
+    static final int BINS = 200;
+
+    private final long[] bins = new long[BINS + 1]; // last bin holds exactly 1.0
+    private long count;
+
+    void add(double frequency) {
+        int bin = (int) (Math.max(0, Math.min(1, frequency)) * BINS);
+        bins[bin]++;
+        count++;
+    }
+
+    void merge(FrequencyHistogram other) {
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] += other.bins[i];
+        }
+        count += other.count;
+    }
+
+    double quantile(double q) {
+        if (count == 0) return Double.NaN;
+        long target = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int i = 0; i < bins.length; i++) {
+            seen += bins[i];
+            if (seen >= Math.max(1, target)) {
+                return Math.min(1, (i + 0.5) / BINS);
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package sicklecellsimulation;
+
+import java.awt.*;
+
+// The one set of genotype colours for everything that draws, indexed by genotype code
+// (PopulationStore.AA, AS, SS). Shared instances, so nothing allocates a Color per call.
+final class GenotypePalette {
+    static final Color AA = Color.BLUE;
+    static final Color AS = new Color(128, 0, 128); // purple
+    static final Color SS = Color.RED;
+    static final Color[] COLORS = { AA, AS, SS };
+
+    private GenotypePalette() {
+    }
+
+    static Color of(byte genotype) {
+        return COLORS[genotype];
+    }
+
+    // Packed ARGB, for drawing straight into image rasters
+    static int argb(int genotype) {
+        return COLORS[genotype].getRGB();
+    }
+}
@@ -4,27 +4,40 @@ import javax.swing.*;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
-import org.jfree.chart.plot.PiePlot;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
-import org.jfree.data.general.DefaultPieDataset;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
 
+// Counts arrive every generation into bounded TrendBuffers; the chart's series are only rebuilt
+// in flush(), once per display frame, from the buffer downsampled to the chart's pixel width.
+// JFreeChart therefore never holds more than a few points per pixel, however long the run.
 public class GraphWindow extends JFrame {
+    private static final int BUFFER_CAPACITY = 1 << 14;
+    private static final Integer[] WINDOWS = { 1_000, 10_000, 100_000, 1_000_000 };
+
     private final XYSeries healthySeries, carrierSeries, sickleSeries;
     private final XYSeriesCollection dataset;
+    private final ChartPanel chartPanel;
+    private TrendBuffer history = new TrendBuffer(BUFFER_CAPACITY, 0);
+    private TrendBuffer recent = new TrendBuffer(BUFFER_CAPACITY, WINDOWS[1]);
+    private final JCheckBox rollingToggle = new JCheckBox("Rolling window");
+    private final JComboBox<Integer> windowSelector = new JComboBox<>(WINDOWS);
+    private boolean dirty;
+    private double[] xs = new double[0], ys = new double[0];
 
     public GraphWindow() {
         setTitle("Sickle Cell Simulation - Population Graph");
         setSize(800, 500);
         setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
 
-        // Create dataset
-        healthySeries = new XYSeries("Healthy");
-        carrierSeries = new XYSeries("Carriers");
-        sickleSeries = new XYSeries("Sickle Cell");
+        // Create dataset. Points are added in order, so skip sorting; min and max share an x.
+        healthySeries = new XYSeries("Healthy", false, true);
+        carrierSeries = new XYSeries("Carriers", false, true);
+        sickleSeries = new XYSeries("Sickle Cell", false, true);
 
         dataset = new XYSeriesCollection();
         dataset.addSeries(healthySeries);
@@ -39,29 +52,114 @@ public class GraphWindow extends JFrame {
         );
 
         XYPlot plot = chart.getXYPlot();
-        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer(true, false); // lines only
 
-        renderer.setSeriesPaint(0, Color.BLUE); // Healthy
-        renderer.setSeriesPaint(1, new Color(128, 0, 128)); // Carrier (Purple)
-        renderer.setSeriesPaint(2, Color.RED); // Sickle Cell
+        renderer.setSeriesPaint(0, GenotypePalette.AA); // Healthy
+        renderer.setSeriesPaint(1, GenotypePalette.AS); // Carrier (Purple)
+        renderer.setSeriesPaint(2, GenotypePalette.SS); // Sickle Cell
         plot.setRenderer(renderer);
 
+        // Rolling window controls
+        windowSelector.setSelectedItem(WINDOWS[1]);
+        windowSelector.addActionListener(e -> {
+            recent = new TrendBuffer(BUFFER_CAPACITY, (Integer) windowSelector.getSelectedItem());
+            dirty = true;
+        });
+        rollingToggle.addItemListener(e -> {
+            dirty = true;
+            flush();
+        });
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(rollingToggle);
+        controls.add(new JLabel("Generations:"));
+        controls.add(windowSelector);
+        JButton openButton = new JButton("Open trajectory...");
+        openButton.addActionListener(e -> chooseTrajectory());
+        controls.add(openButton);
+
         // Display graph
-        ChartPanel chartPanel = new ChartPanel(chart);
-        add(chartPanel);
+        chartPanel = new ChartPanel(chart);
+        add(chartPanel, BorderLayout.CENTER);
+        add(controls, BorderLayout.SOUTH);
         setVisible(true);
     }
-    public void updateGraph(int generation, int healthy, int carriers, int sickle) {
-        healthySeries.add(generation, healthy);
-        carrierSeries.add(generation, carriers);
-        sickleSeries.add(generation, sickle);
+
+    public void updateGraph(int generation, long healthy, long carriers, long sickle) {
+        history.add(generation, healthy, carriers, sickle);
+        recent.add(generation, healthy, carriers, sickle);
+        dirty = true;
     }
-    public void clearGraph() {
-        healthySeries.clear();
-        carrierSeries.clear();
-        sickleSeries.clear();
+
+    // Pushes everything added since the last flush to the chart, one change event per series
+    public void flush() {
+        if (!dirty || !isVisible()) return;
+        dirty = false;
+        TrendBuffer source = rollingToggle.isSelected() ? recent : history;
+        int columns = Math.max(100, chartPanel.getWidth());
+        if (xs.length < 2 * columns) {
+            xs = new double[2 * columns];
+            ys = new double[2 * columns];
+        }
+        refill(healthySeries, source, 0, columns);
+        refill(carrierSeries, source, 1, columns);
+        refill(sickleSeries, source, 2, columns);
     }
 
+    private void refill(XYSeries series, TrendBuffer source, int index, int columns) {
+        int points = source.downsample(index, columns, xs, ys);
+        series.setNotify(false);
+        series.clear();
+        for (int i = 0; i < points; i++) {
+            series.add(xs[i], ys[i], false);
+        }
+        series.setNotify(true); // fires the one change event
+    }
 
-}
+    private void chooseTrajectory() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path path = chooser.getSelectedFile().toPath();
+        GraphWindow viewer = new GraphWindow();
+        viewer.setTitle("Sickle Cell Simulation - " + path.getFileName());
+        viewer.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        viewer.load(path, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Offline view of a recorded run. The file is streamed through the reader's mapping on a
+    // background thread into fresh buffers, which are swapped in once complete; only the
+    // requested generation range is touched.
+    public void load(Path path, int fromGeneration, int toGeneration) {
+        int window = (Integer) windowSelector.getSelectedItem();
+        new Thread(() -> {
+            TrendBuffer loadedHistory = new TrendBuffer(BUFFER_CAPACITY, 0);
+            TrendBuffer loadedRecent = new TrendBuffer(BUFFER_CAPACITY, window);
+            try (TrajectoryReader reader = new TrajectoryReader(path)) {
+                long end = reader.getRowCount();
+                for (long row = reader.findGeneration(fromGeneration); row < end; row++) {
+                    int generation = reader.generation(row);
+                    if (generation > toGeneration) break;
+                    long healthy = reader.healthy(row), carriers = reader.carriers(row), sickle = reader.sickle(row);
+                    loadedHistory.add(generation, healthy, carriers, sickle);
+                    loadedRecent.add(generation, healthy, carriers, sickle);
+                }
+            } catch (IOException | RuntimeException e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        "Could not read " + path + ": " + e.getMessage(), "Trajectory", JOptionPane.ERROR_MESSAGE));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                history = loadedHistory;
+                recent = loadedRecent;
+                dirty = true;
+                flush();
+            });
+        }, "trajectory-loader").start();
+    }
 
+    public void clearGraph() {
+        history.clear();
+        recent.clear();
+        dirty = true;
+        flush();
+    }
+}
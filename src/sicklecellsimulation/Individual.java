@@ -1,201 +1,178 @@
 package sicklecellsimulation;
-import java.awt.*;
-import java.util.List;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
+// A cursor over one slot of a PopulationStore. It holds no state of its own, so one
+// instance can be moved along the population with at(index).
 class Individual {
-    private double x, y;
-    private double velocityX, velocityY;
-    private Color color;
-    private final Random random = new Random();
-    private final Individual parent1;
-    private final Individual parent2;
-    private final String genotype;
-    private final List<Individual> children = new ArrayList<>();
-    private int age = 0;
-
-    public Individual(int x, int y, Individual parent1, Individual parent2) {
-        this.x = x;
-        this.y = y;
-        this.velocityX = random.nextInt(3) - 1;
-        this.velocityY = random.nextInt(3) - 1;
-        this.parent1 = parent1;
-        this.parent2 = parent2;
-
-        // Inherit genotype
-        String allele1 = parent1.getRandomAllele();
-        String allele2 = parent2.getRandomAllele();
-        String rawGenotype = allele1 + allele2;
-        if (rawGenotype.equals("SA")) rawGenotype = "AS";
-        this.genotype = rawGenotype;
-
-        // Set color based on genotype
-        switch (genotype) {
-            case "AA" -> this.color = Color.BLUE;
-            case "AS" -> this.color = new Color(128, 0, 128); // Purple
-            case "SS" -> this.color = Color.RED;
-        }
-    }
-    public String getGenotype() {
-        return genotype;
+    private final PopulationStore store;
+    private int index;
+    int collisions; // contacts resolved through this cursor, for TickMetrics
+
+    public Individual(PopulationStore store, int index) {
+        this.store = store;
+        this.index = index;
     }
-    // Randomly returns either "A" or "S" based on parent's genotype
-    public String getRandomAllele() {
-        if (genotype.equals("AA")) return "A";
-        if (genotype.equals("SS")) return "S";
-        return Math.random() < 0.5 ? "A" : "S";
+
+    public Individual at(int index) {
+        this.index = index;
+        return this;
     }
-    public Individual(int x, int y, String genotype) {
-        this.x = x;
-        this.y = y;
-        this.velocityX = random.nextInt(3) - 1;
-        this.velocityY = random.nextInt(3) - 1;
-        this.genotype = genotype;
-        this.parent1 = null;
-        this.parent2 = null;
-
-        // Set color
-        switch (genotype) {
-            case "AA" -> this.color = Color.BLUE;
-            case "AS" -> this.color = new Color(128, 0, 128);
-            case "SS" -> this.color = Color.RED;
-        }
+
+    public int getIndex() {
+        return index;
     }
-    public void addChild(Individual child) {
-        children.add(child);
+
+    public String getGenotype() {
+        return PopulationStore.name(store.genotype[index]);
     }
 
-    public List<Individual> getChildren() {
-        return children;
+    // Randomly returns the number of S alleles (0 or 1) passed on, based on genotype
+    public int getRandomAllele(RandomGenerator random) {
+        byte g = store.genotype[index];
+        if (g == PopulationStore.AA) return 0;
+        if (g == PopulationStore.SS) return 1;
+        return random.nextBoolean() ? 1 : 0;
     }
 
     //basic physics engine for visual
-    public void moveSmoothly(int maxWidth, int maxHeight, Individual[] others) {
-        x += velocityX;
-        y += velocityY;
+    // Only individuals in the 3x3 block of grid cells around this one are checked. The grid is
+    // built at the start of the pass, so it lags this tick's movement by a pixel or two.
+    public void moveSmoothly(int maxWidth, int maxHeight, SpatialGrid grid) {
+        float[] xs = store.x, ys = store.y, vxs = store.vx, vys = store.vy;
+        int i = index;
+        xs[i] += vxs[i];
+        ys[i] += vys[i];
 
         // Wall collision
-        if (x < 0 || x > maxWidth - 10) velocityX *= -1;
-        if (y < 0 || y > maxHeight - 10) velocityY *= -1;
-
-        // Collision with other individuals
-        for (Individual other : others) {
-            if (other == this) continue; // Skip self-check
-
-            double dx = x - other.getX();
-            double dy = y - other.getY();
-            double distance = Math.sqrt(dx * dx + dy * dy);
-
-            if (distance < 12) { // If overlapping
-                if (distance == 0) distance = 0.1; // Prevent division by zero
-
-                // Normalize collision axis
-                double nx = dx / distance;
-                double ny = dy / distance;
-
-                // Relative velocity
-                double dvx = velocityX - other.velocityX;
-                double dvy = velocityY - other.velocityY;
-
-                // Velocity along normal (dot product)
-                double velocityAlongNormal = dvx * nx + dvy * ny;
-
-                // Only resolve if moving towards each other
-                if (velocityAlongNormal > 0) continue;
-
-                // Elastic collision response
-                double restitution = 0.9; // Bounciness factor
-                double impulse = -(1 + restitution) * velocityAlongNormal;
-                impulse /= 2; // Distribute equally between both individuals
-
-                velocityX += impulse * nx;
-                velocityY += impulse * ny;
-                other.velocityX -= impulse * nx;
-                other.velocityY -= impulse * ny;
-
-                // Small push apart to prevent sticking
-                double pushFactor = 0.5;
-                x += nx * pushFactor;
-                y += ny * pushFactor;
-                other.x -= nx * pushFactor;
-                other.y -= ny * pushFactor;
+        if (xs[i] < 0 || xs[i] > maxWidth - 10) vxs[i] *= -1;
+        if (ys[i] < 0 || ys[i] > maxHeight - 10) vys[i] *= -1;
+
+        // Collision with nearby individuals
+        int cx = grid.cellX(xs[i]), cy = grid.cellY(ys[i]);
+        int x0 = Math.max(0, cx - 1), x1 = Math.min(grid.cols() - 1, cx + 1);
+        int y0 = Math.max(0, cy - 1), y1 = Math.min(grid.rows() - 1, cy + 1);
+        for (int row = y0; row <= y1; row++) {
+            int first = grid.start(row * grid.cols() + x0);
+            int last = grid.end(row * grid.cols() + x1); // cells in a row are contiguous
+            for (int k = first; k < last; k++) {
+                int j = grid.item(k);
+                if (j == i) continue; // Skip self-check
+                collide(i, j);
             }
         }
 
         // Apply movement
-        x = Math.max(0, Math.min(x, maxWidth - 10));
-        y = Math.max(0, Math.min(y, maxHeight - 10));
+        xs[i] = Math.max(0, Math.min(xs[i], maxWidth - 10));
+        ys[i] = Math.max(0, Math.min(ys[i], maxHeight - 10));
+    }
+
+    private void collide(int i, int j) {
+        float[] xs = store.x, ys = store.y, vxs = store.vx, vys = store.vy;
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        double distance = Math.sqrt(dx * dx + dy * dy);
+
+        if (distance < 12) { // If overlapping
+            if (distance == 0) distance = 0.1; // Prevent division by zero
+
+            // Normalize collision axis
+            double nx = dx / distance;
+            double ny = dy / distance;
+
+            // Relative velocity
+            double dvx = vxs[i] - vxs[j];
+            double dvy = vys[i] - vys[j];
+
+            // Velocity along normal (dot product)
+            double velocityAlongNormal = dvx * nx + dvy * ny;
+
+            // Only resolve if moving towards each other
+            if (velocityAlongNormal > 0) return;
+            collisions++;
+
+            // Elastic collision response
+            double restitution = 0.9; // Bounciness factor
+            double impulse = -(1 + restitution) * velocityAlongNormal;
+            impulse /= 2; // Distribute equally between both individuals
+
+            vxs[i] += impulse * nx;
+            vys[i] += impulse * ny;
+            vxs[j] -= impulse * nx;
+            vys[j] -= impulse * ny;
+
+            // Small push apart to prevent sticking
+            double pushFactor = 0.5;
+            xs[i] += nx * pushFactor;
+            ys[i] += ny * pushFactor;
+            xs[j] -= nx * pushFactor;
+            ys[j] -= ny * pushFactor;
+        }
     }
 
+    // Collision part of moveSmoothly for the parallel tick: works out this individual's share of
+    // every contact from the current state and writes its new position and velocity to the out
+    // arrays. Both sides of a pair compute the same impulse with opposite sign, so nothing has to
+    // be written to the other individual.
+    public void resolveCollisions(SpatialGrid grid, float[] outX, float[] outY, float[] outVx, float[] outVy) {
+        float[] xs = store.x, ys = store.y, vxs = store.vx, vys = store.vy;
+        int i = index;
+        double px = xs[i], py = ys[i], pvx = vxs[i], pvy = vys[i];
+
+        int cx = grid.cellX(xs[i]), cy = grid.cellY(ys[i]);
+        int x0 = Math.max(0, cx - 1), x1 = Math.min(grid.cols() - 1, cx + 1);
+        int y0 = Math.max(0, cy - 1), y1 = Math.min(grid.rows() - 1, cy + 1);
+        for (int row = y0; row <= y1; row++) {
+            int first = grid.start(row * grid.cols() + x0);
+            int last = grid.end(row * grid.cols() + x1);
+            for (int k = first; k < last; k++) {
+                int j = grid.item(k);
+                if (j == i) continue;
+
+                double dx = xs[i] - xs[j];
+                double dy = ys[i] - ys[j];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                if (distance >= 12) continue;
+                if (distance == 0) distance = 0.1;
 
+                double nx = dx / distance;
+                double ny = dy / distance;
+                double velocityAlongNormal = (vxs[i] - vxs[j]) * nx + (vys[i] - vys[j]) * ny;
+                if (velocityAlongNormal > 0) continue;
+                if (i < j) collisions++; // each pair is resolved from both sides
 
-
-    public boolean isHealthy() { return color.equals(Color.BLUE); }
-    public boolean isCarrier() { return color.equals(new Color(128, 0, 128)); }
-    public boolean isSickleCell() { return color.equals(Color.RED); }
-    public void becomeCarrier() { this.color = new Color(128, 0, 128); }
-    public void becomeSickleCell() { this.color = Color.RED; }
-
-    public double getX() { return x; }
-    public double getY() { return y; }
-
-    private int animationSize = 10;
-    private int fadeAlpha = 255;
-    private boolean fadingOut = false;
-
-    public void draw(Graphics g, int size) {
-        if (fadingOut) {
-            fadeAlpha -= 15;
-            if (fadeAlpha <= 0) fadeAlpha = 0;
+                double impulse = -(1 + 0.9) * velocityAlongNormal / 2;
+                pvx += impulse * nx;
+                pvy += impulse * ny;
+                px += nx * 0.5;
+                py += ny * 0.5;
+            }
         }
 
-        g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), fadeAlpha));
-        g.fillOval((int) x, (int) y, size, size);
-
-        // Reset animation after one frame
-        animationSize = 10;
+        outX[i] = (float) px;
+        outY[i] = (float) py;
+        outVx[i] = (float) pvx;
+        outVy[i] = (float) pvy;
     }
 
-    public void animateGrowth() {
-        animationSize = 15; // Briefly grows when reproducing
-    }
-
-    public void animateDeath() {
-        fadingOut = true; // Slowly fades away
-    }
+    public boolean isHealthy() { return store.genotype[index] == PopulationStore.AA; }
+    public boolean isCarrier() { return store.genotype[index] == PopulationStore.AS; }
+    public boolean isSickleCell() { return store.genotype[index] == PopulationStore.SS; }
+    public void becomeCarrier() { store.genotype[index] = PopulationStore.AS; }
+    public void becomeSickleCell() { store.genotype[index] = PopulationStore.SS; }
 
-    public void animateMutation() {
-        animationSize = 12; // Slightly grows when mutation occurs
-    }
+    public double getX() { return store.x[index]; }
+    public double getY() { return store.y[index]; }
 
     public int getAge() {
-        return age;
+        return store.age[index];
     }
 
     public void incrementAge() {
-        age++;
-    }
-
-    public Individual getParent1() {
-        return parent1;
+        store.age[index]++;
     }
 
-    public Individual getParent2() {
-        return parent2;
+    public int getPedigreeId() {
+        return store.pedigreeId == null ? PedigreeStore.NO_PARENT : store.pedigreeId[index];
     }
-
-
-    public int getSubtreeSize() {
-        int size = 1;
-        for (Individual child : children) {
-            size += child.getSubtreeSize();
-        }
-        return size;
-    }
-
-
-
-
 }
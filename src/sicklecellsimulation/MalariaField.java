@@ -0,0 +1,146 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+
+// Malaria intensity over the world, in [0, 1] per CELL x CELL pixel cell: 1 is the full malaria
+// risk of the fitness model, 0 none. Breeding sites at fixed spots (drawn from the seed) feed
+// it, it spreads to the four neighbouring cells and decays back towards an endemic
+// background, so it settles into hotspots fading out over a few dozen cells.
+//
+// A step is a five-point stencil from one buffer into the other, run as ChunkedPass tiles of
+// whole rows (about CHUNK_SIZE cells each), so big worlds update in parallel and the result
+// never depends on the threads. At a few thousand cells for the default window it costs a
+// small fraction of the agent passes.
+final class MalariaField {
+    static final int CELL = 10; // pixels per side
+    private static final float SPREAD = 0.2f; // share each neighbour gets per tick, at most 0.25
+    private static final float DECAY = 0.02f;
+    private static final float BACKGROUND = 0.1f;
+    private static final float SOURCE = 0.03f; // inflow at the centre of a breeding site
+    private static final int CELLS_PER_SITE = 600;
+    private static final int WARM_UP = 300; // steps run up front, enough to settle
+    private static final float STEADY = 1e-4f; // changes below this leave the version alone
+
+    final int cols, rows;
+    private final long seed;
+    private final int bandRows; // rows per tile
+    private final float scale = 1f / CELL;
+    private float[] intensity, next; // [row * cols + col]
+    private final float[] source;
+    private final float[] bandChange; // largest change per tile in the last step
+    private int version; // bumped by every step that visibly changed something
+
+    MalariaField(int width, int height, long seed, ForkJoinPool pool) {
+        this(width, height, seed);
+        for (int i = 0; i < WARM_UP; i++) step(pool);
+    }
+
+    private MalariaField(int width, int height, long seed) {
+        this.seed = seed;
+        cols = columns(width);
+        rows = rows(height);
+        int n = cols * rows;
+        intensity = new float[n];
+        next = new float[n];
+        source = new float[n];
+        bandRows = Math.max(1, ChunkedPass.CHUNK_SIZE / cols);
+        bandChange = new float[ChunkedPass.chunks(rows, bandRows)];
+        Arrays.fill(intensity, BACKGROUND);
+
+        // Sites sit at fractions of the world, so a resized world keeps roughly the same map
+        RandomGenerator random = new RandomStreams(seed).stream(0, RandomStreams.MALARIA, 0);
+        int sites = Math.max(3, n / CELLS_PER_SITE);
+        for (int s = 0; s < sites; s++) {
+            double cx = random.nextDouble() * cols, cy = random.nextDouble() * rows;
+            double radius = 2 + random.nextDouble() * 4;
+            int reach = (int) Math.ceil(radius * 3);
+            for (int r = Math.max(0, (int) cy - reach); r < Math.min(rows, (int) cy + reach + 1); r++) {
+                for (int c = Math.max(0, (int) cx - reach); c < Math.min(cols, (int) cx + reach + 1); c++) {
+                    double dx = c + 0.5 - cx, dy = r + 0.5 - cy;
+                    source[r * cols + c] += (float) (SOURCE * Math.exp(-(dx * dx + dy * dy) / (2 * radius * radius)));
+                }
+            }
+        }
+    }
+
+    private static int columns(int width) {
+        return Math.max(1, (width + CELL - 1) / CELL);
+    }
+
+    private static int rows(int height) {
+        return Math.max(1, (height + CELL - 1) / CELL);
+    }
+
+    // The field for a resized world. The same grid keeps this field; a new one takes each cell
+    // from the nearest old cell instead of warming up again, and settles onto the new sites
+    // over the following ticks.
+    MalariaField resize(int width, int height) {
+        if (columns(width) == cols && rows(height) == rows) return this;
+        MalariaField resized = new MalariaField(width, height, seed);
+        for (int r = 0; r < resized.rows; r++) {
+            int from = (int) ((long) r * rows / resized.rows) * cols;
+            for (int c = 0; c < resized.cols; c++) {
+                resized.intensity[r * resized.cols + c] = intensity[from + (int) ((long) c * cols / resized.cols)];
+            }
+        }
+        resized.version = version + 1;
+        return resized;
+    }
+
+    void step(ForkJoinPool pool) {
+        float[] from = intensity, to = next;
+        ChunkedPass.run(pool, rows, bandRows, (band, firstRow, endRow) -> {
+            float change = 0;
+            for (int r = firstRow; r < endRow; r++) {
+                int row = r * cols;
+                // Edges reflect: a missing neighbour counts as this cell
+                int above = r > 0 ? row - cols : row;
+                int below = r < rows - 1 ? row + cols : row;
+                for (int c = 0; c < cols; c++) {
+                    int i = row + c;
+                    float here = from[i];
+                    float left = c > 0 ? from[i - 1] : here;
+                    float right = c < cols - 1 ? from[i + 1] : here;
+                    float value = here + SPREAD * (left + right + from[above + c] + from[below + c] - 4 * here)
+                            - DECAY * (here - BACKGROUND) + source[i];
+                    value = Math.max(0, Math.min(1, value));
+                    change = Math.max(change, Math.abs(value - here));
+                    to[i] = value;
+                }
+            }
+            bandChange[band] = change;
+        });
+        intensity = to;
+        next = from;
+        for (float change : bandChange) {
+            if (change > STEADY) {
+                version++;
+                break;
+            }
+        }
+    }
+
+    // The intensity of the cell under a point; points outside use the nearest cell
+    float at(float x, float y) {
+        int c = Math.max(0, Math.min(cols - 1, (int) (x * scale)));
+        int r = Math.max(0, Math.min(rows - 1, (int) (y * scale)));
+        return intensity[r * cols + c];
+    }
+
+    int version() {
+        return version;
+    }
+
+    float[] values() {
+        return intensity;
+    }
+
+    // For checkpoints: takes over saved values when they are for a field of this size
+    void restore(float[] values) {
+        if (values.length != intensity.length) return;
+        System.arraycopy(values, 0, intensity, 0, values.length);
+        version++;
+    }
+}
@@ -0,0 +1,44 @@
+package sicklecellsimulation;
+
+// The default selection model. Everyone carries the configured death rate scaled by genotype:
+// SS badly (worst for infants, much less with healthcare), AS somewhat, AA least. In a malaria
+// region malaria adds its own risk, twice as high for children under 5 and halved by
+// healthcare, which AS carriers mostly escape: that protection is the heterozygote advantage
+// keeping the S allele around. Past ELDERLY_AGE everyone also risks dying of old age.
+public class MalariaFitness implements FitnessModel {
+    private static final int ELDERLY_AGE = 30;
+    private static final double ELDERLY_DEATH_RATE = 0.05;
+    private static final int CHILD_AGE = 5;
+    private static final double MALARIA = 1.0; // extra death-rate multiplier for AA
+    private static final double CARRIER_PROTECTION = 0.9; // share of it AS escapes
+
+    @Override
+    public double deathProbability(SimulationConfig config, int genotype, int age) {
+        boolean healthcareAvailable = config.isHealthcareAvailable();
+        boolean child = age < CHILD_AGE;
+        double multiplier;
+        if (genotype == PopulationStore.SS) {
+            if (child) {
+                multiplier = healthcareAvailable ? 0.05 : 0.9; // SS infants
+            } else {
+                multiplier = healthcareAvailable ? 0.1 : 0.5;
+            }
+        } else if (genotype == PopulationStore.AS) {
+            multiplier = 0.6;
+        } else {
+            multiplier = 0.2;
+        }
+
+        if (config.isMalariaRegion() && genotype != PopulationStore.SS) {
+            double malaria = MALARIA * (child ? 2 : 1) * (healthcareAvailable ? 0.5 : 1);
+            if (genotype == PopulationStore.AS) malaria *= 1 - CARRIER_PROTECTION;
+            multiplier += malaria;
+        }
+
+        double rate = config.getDeathRate() * multiplier;
+        if (age > ELDERLY_AGE) {
+            rate += ELDERLY_DEATH_RATE;
+        }
+        return Math.min(1, rate);
+    }
+}
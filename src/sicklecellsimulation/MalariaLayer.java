@@ -0,0 +1,41 @@
+package sicklecellsimulation;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+// Paints a snapshot's malaria field behind the population: one pixel per cell, stretched over
+// the panel with bilinear smoothing. The small image is only refilled when the field's version
+// changes, which stops happening once the field has settled, so most frames are a single
+// scaled drawImage.
+class MalariaLayer {
+    private static final int MAX_ALPHA = 110;
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int version = -1;
+
+    void paint(Graphics g, FrameSnapshot frame) {
+        if (frame.malaria == null) return;
+        if (image == null || image.getWidth() != frame.malariaCols || image.getHeight() != frame.malariaRows) {
+            image = new BufferedImage(frame.malariaCols, frame.malariaRows, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            version = -1;
+        }
+        if (version != frame.malariaVersion) {
+            float[] values = frame.malaria;
+            for (int i = 0; i < pixels.length; i++) {
+                int alpha = (int) (values[i] * MAX_ALPHA);
+                pixels[i] = (alpha << 24) | 0x006400; // the banner's green
+            }
+            version = frame.malariaVersion;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        // Cells are CELL pixels, so the last row and column can reach past the panel
+        g2.drawImage(image, 0, 0, frame.malariaCols * MalariaField.CELL, frame.malariaRows * MalariaField.CELL, null);
+        g2.dispose();
+    }
+}
@@ -0,0 +1,287 @@
+package sicklecellsimulation;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+// Runs a small ensemble at every point of a parameter space and writes one CSV row per point.
+// Points are either the full grid over each axis's values or a Latin hypercube sample of the
+// ranges. They are split across a work-stealing pool, so cheap points (small populations) and
+// expensive ones balance out. Every point reuses the same replicate seeds, which keeps noise
+// from swamping the differences between neighbouring points.
+public class ParameterSweep {
+    public enum Design { GRID, LATIN_HYPERCUBE }
+
+    static final String[] PARAMETERS = {
+            "region", "population", "start", "reproduction", "death", "mutation", "healthcare", "malaria"
+    };
+
+    // One swept parameter. Either an explicit list of values or a lo:hi range, which a grid
+    // visits at `steps` evenly spaced values and a Latin hypercube samples continuously.
+    static final class Axis {
+        final String parameter;
+        final double[] values;
+        final double lo, hi;
+        final int steps;
+
+        private Axis(String parameter, double[] values, double lo, double hi, int steps) {
+            this.parameter = parameter;
+            this.values = values;
+            this.lo = lo;
+            this.hi = hi;
+            this.steps = steps;
+        }
+
+        boolean isRange() {
+            return values == null;
+        }
+
+        int size() {
+            return isRange() ? steps : values.length;
+        }
+
+        double gridValue(int k) {
+            if (!isRange()) return values[k];
+            return steps == 1 ? lo : lo + (hi - lo) * k / (steps - 1);
+        }
+
+        static Axis parse(String parameter, String spec) {
+            switch (parameter) {
+                case "region" -> {
+                    if (spec.equalsIgnoreCase("all")) {
+                        double[] all = new double[RegionPreset.values().length];
+                        for (int i = 0; i < all.length; i++) all[i] = i;
+                        return new Axis(parameter, all, 0, 0, 0);
+                    }
+                    String[] names = spec.split(",");
+                    double[] values = new double[names.length];
+                    for (int i = 0; i < names.length; i++) values[i] = RegionPreset.named(names[i]).ordinal();
+                    return new Axis(parameter, values, 0, 0, 0);
+                }
+                case "healthcare", "malaria" -> {
+                    String[] flags = spec.split(",");
+                    double[] values = new double[flags.length];
+                    for (int i = 0; i < flags.length; i++) values[i] = Boolean.parseBoolean(flags[i].trim()) ? 1 : 0;
+                    return new Axis(parameter, values, 0, 0, 0);
+                }
+                case "population", "start", "reproduction", "death", "mutation" -> {
+                    if (spec.contains(":")) {
+                        String[] parts = spec.split(":");
+                        int steps = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+                        return new Axis(parameter, null, Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), steps);
+                    }
+                    String[] items = spec.split(",");
+                    double[] values = new double[items.length];
+                    for (int i = 0; i < items.length; i++) values[i] = Double.parseDouble(items[i].trim());
+                    return new Axis(parameter, values, 0, 0, 0);
+                }
+                default -> throw new IllegalArgumentException("Cannot sweep " + parameter);
+            }
+        }
+    }
+
+    private final SimulationConfig base;
+    private final List<Axis> axes = new ArrayList<>();
+    private Design design = Design.GRID;
+    private int samples = 100;
+    private int replicates = 1;
+    private int generations = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double[][] hypercube; // [point][axis], built when the run starts
+
+    public ParameterSweep(SimulationConfig base) {
+        this.base = base.copy().setParallel(false);
+    }
+
+    // Rates are in percent, like the GUI. The region is applied before any other axis so the
+    // others can override what the preset sets.
+    public ParameterSweep addAxis(String parameter, String spec) {
+        Axis axis = Axis.parse(parameter, spec);
+        if (parameter.equals("region")) axes.add(0, axis);
+        else axes.add(axis);
+        return this;
+    }
+
+    public ParameterSweep setDesign(Design design) {
+        this.design = design;
+        return this;
+    }
+
+    public ParameterSweep setSamples(int samples) {
+        this.samples = Math.max(1, samples);
+        return this;
+    }
+
+    public ParameterSweep setReplicates(int replicates) {
+        this.replicates = Math.max(1, replicates);
+        return this;
+    }
+
+    public ParameterSweep setGenerations(int generations) {
+        this.generations = Math.max(1, generations);
+        return this;
+    }
+
+    public ParameterSweep setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    public long getPointCount() {
+        if (design == Design.LATIN_HYPERCUBE) return samples;
+        long points = 1;
+        for (Axis axis : axes) points = Math.multiplyExact(points, axis.size());
+        return points;
+    }
+
+    // Rows are written as points finish, so they come out of order; the first column is the
+    // point number. The output is flushed after every row so a long sweep that dies part way
+    // still leaves the finished rows behind.
+    public <T extends Appendable & Flushable> void run(T out) throws IOException, InterruptedException {
+        for (Axis axis : axes) {
+            if (design == Design.GRID && axis.isRange() && axis.steps < 1) {
+                throw new IllegalArgumentException(axis.parameter + " needs lo:hi:steps for a grid sweep");
+            }
+        }
+        int points = Math.toIntExact(getPointCount());
+        if (design == Design.LATIN_HYPERCUBE) hypercube = latinHypercube(points);
+
+        out.append(header()).append('\n');
+        out.flush();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new PointRange(out, 0, points));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    private String header() {
+        StringBuilder header = new StringBuilder("point");
+        for (Axis axis : axes) header.append(',').append(axis.parameter);
+        return header.append(",replicates,generations,healthy,carriers,sickle,s_frequency,s_frequency_sd")
+                .append(",extinction,fixation,seconds").toString();
+    }
+
+    private final class PointRange extends RecursiveAction {
+        private final Appendable out;
+        private final int from, to;
+
+        PointRange(Appendable out, int from, int to) {
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PointRange(out, from, mid), new PointRange(out, mid, to));
+                return;
+            }
+            String row = runPoint(from);
+            try {
+                synchronized (out) {
+                    out.append(row).append('\n');
+                    ((Flushable) out).flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private String runPoint(int point) {
+        double[] values = pointValues(point);
+        SimulationConfig config = base.copy();
+        for (int a = 0; a < axes.size(); a++) {
+            apply(config, axes.get(a).parameter, values[a]);
+        }
+        EnsembleResult result = new EnsembleRunner(config, replicates, generations)
+                .setReportInterval(generations)
+                .runInline();
+
+        StringBuilder row = new StringBuilder().append(point);
+        for (int a = 0; a < axes.size(); a++) {
+            row.append(',').append(format(axes.get(a).parameter, values[a]));
+        }
+        int last = result.generations.length - 1;
+        row.append(String.format(Locale.ROOT, ",%d,%d,%.2f,%.2f,%.2f,%.5f,%.5f,%.4f,%.4f,%.3f",
+                replicates, generations,
+                result.healthy[last].mean(), result.carriers[last].mean(), result.sickle[last].mean(),
+                result.frequency[last].mean(), result.frequency[last].stdDev(),
+                result.getExtinctionProbability(), result.getFixationProbability(),
+                result.getWallClockSeconds()));
+        return row.toString();
+    }
+
+    private double[] pointValues(int point) {
+        if (design == Design.LATIN_HYPERCUBE) return hypercube[point];
+        // Mixed-radix decode of the point number, last axis varying fastest
+        double[] values = new double[axes.size()];
+        int rest = point;
+        for (int a = axes.size() - 1; a >= 0; a--) {
+            Axis axis = axes.get(a);
+            values[a] = axis.gridValue(rest % axis.size());
+            rest /= axis.size();
+        }
+        return values;
+    }
+
+    // Each axis is cut into n equal strata and every stratum is used exactly once, in an
+    // independently shuffled order per axis. List axes get their values in equal shares.
+    private double[][] latinHypercube(int n) {
+        RandomGenerator rng = new RandomStreams(base.getSeed()).stream(0, RandomStreams.SWEEP, 0);
+        double[][] points = new double[n][axes.size()];
+        int[] strata = new int[n];
+        for (int a = 0; a < axes.size(); a++) {
+            Axis axis = axes.get(a);
+            for (int i = 0; i < n; i++) strata[i] = i;
+            for (int i = n - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                int tmp = strata[i];
+                strata[i] = strata[j];
+                strata[j] = tmp;
+            }
+            for (int i = 0; i < n; i++) {
+                points[i][a] = axis.isRange()
+                        ? axis.lo + (axis.hi - axis.lo) * (strata[i] + rng.nextDouble()) / n
+                        : axis.values[(int) ((long) strata[i] * axis.values.length / n)];
+            }
+        }
+        return points;
+    }
+
+    static void apply(SimulationConfig config, String parameter, double value) {
+        switch (parameter) {
+            case "region" -> RegionPreset.values()[(int) value].applyTo(config);
+            case "population" -> config.setPopulationSize((int) Math.round(value));
+            case "start" -> config.setSickleStartPercent((int) Math.round(value));
+            case "reproduction" -> config.setReproductionRate(value / 100);
+            case "death" -> config.setDeathRate(value / 100);
+            case "mutation" -> config.setMutationRate(value / 100);
+            case "healthcare" -> config.setHealthcareAvailable(value != 0);
+            case "malaria" -> config.setMalariaRegion(value != 0);
+            default -> throw new IllegalArgumentException("Cannot sweep " + parameter);
+        }
+    }
+
+    private static String format(String parameter, double value) {
+        return switch (parameter) {
+            case "region" -> RegionPreset.values()[(int) value].name();
+            case "population", "start" -> String.valueOf(Math.round(value));
+            case "healthcare", "malaria" -> String.valueOf(value != 0);
+            default -> String.format(Locale.ROOT, "%.6g", value);
+        };
+    }
+}
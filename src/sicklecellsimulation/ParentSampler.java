@@ -0,0 +1,46 @@
+package sicklecellsimulation;
+
+import java.util.random.RandomGenerator;
+
+// Draws parents for a tick's births. Individuals are sorted into one bucket per genotype once,
+// and each bucket covers a span of [0, total mating weight) as wide as its members' weight, so
+// one uniform number lands on a bucket (two comparisons) and, by where it falls inside that
+// span, on a member. A parent is picked with probability proportional to
+// SimulationEngine.matingWeight of its genotype, the same distribution retrying rejected SS
+// draws gave, but in O(1) however many SS there are.
+final class ParentSampler {
+    private int[] members = new int[16]; // indices grouped by genotype
+    private final int[] start = new int[4]; // bucket g is members[start[g], start[g + 1])
+    private final double[] upTo = new double[3]; // total weight of buckets 0..g
+    private final double[] weight = new double[3]; // of one member of bucket g
+
+    // Buckets individuals [0, n) of the store; `counts` is how many of each genotype there are
+    void build(PopulationStore store, int n, int[] counts) {
+        if (members.length < n) members = new int[Math.max(n, members.length * 2)];
+        int[] next = new int[3];
+        double total = 0;
+        for (int g = 0; g < 3; g++) {
+            start[g + 1] = start[g] + counts[g];
+            next[g] = start[g];
+            weight[g] = SimulationEngine.matingWeight(g);
+            total += counts[g] * weight[g];
+            upTo[g] = total;
+        }
+        byte[] genotype = store.genotype;
+        for (int i = 0; i < n; i++) {
+            members[next[genotype[i]]++] = i;
+        }
+    }
+
+    boolean isEmpty() {
+        return upTo[2] <= 0;
+    }
+
+    int draw(RandomGenerator rng) {
+        double u = Math.min(rng.nextDouble() * upTo[2], Math.nextDown(upTo[2])); // empty spans are never hit
+        int g = u < upTo[0] ? 0 : u < upTo[1] ? 1 : 2;
+        double from = g == 0 ? 0 : upTo[g - 1];
+        // Rounding can put u a hair past the bucket's last member
+        return members[Math.min(start[g] + (int) ((u - from) / weight[g]), start[g + 1] - 1)];
+    }
+}
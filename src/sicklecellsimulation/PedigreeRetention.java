@@ -0,0 +1,7 @@
+package sicklecellsimulation;
+
+public enum PedigreeRetention {
+    FULL,                // every individual ever born; memory grows with the run
+    ANCESTORS_OF_LIVING, // the living and their ancestors within the configured depth
+    NONE                 // no pedigree, no family tree
+}
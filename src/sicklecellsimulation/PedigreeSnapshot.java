@@ -0,0 +1,63 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+
+// Read-only copy of a PedigreeStore, taken on the simulation thread and handed to the tree
+// viewer. Children are indexed once, compressed-row style: the children of id are
+// child(k) for k in [childStart(id), childEnd(id)), in birth order.
+final class PedigreeSnapshot {
+    private final int[] parent1, parent2, birthGeneration;
+    private final byte[] genotype;
+    private final int[] living;
+    private final int[] childStart;
+    private final int[] children;
+    private final int epoch;
+
+    // Two snapshots with the same epoch agree on every id the older one has; the newer one
+    // may only have appended more.
+    PedigreeSnapshot(int[] parent1, int[] parent2, int[] birthGeneration, byte[] genotype, int[] living, int epoch) {
+        this.epoch = epoch;
+        this.parent1 = parent1;
+        this.parent2 = parent2;
+        this.birthGeneration = birthGeneration;
+        this.genotype = genotype;
+        this.living = living;
+
+        int n = genotype.length;
+        childStart = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            if (parent1[id] != PedigreeStore.NO_PARENT) childStart[parent1[id] + 1]++;
+            if (parent2[id] != PedigreeStore.NO_PARENT && parent2[id] != parent1[id]) childStart[parent2[id] + 1]++;
+        }
+        for (int id = 0; id < n; id++) childStart[id + 1] += childStart[id];
+        children = new int[childStart[n]];
+        int[] fill = Arrays.copyOf(childStart, n);
+        for (int id = 0; id < n; id++) {
+            if (parent1[id] != PedigreeStore.NO_PARENT) children[fill[parent1[id]]++] = id;
+            if (parent2[id] != PedigreeStore.NO_PARENT && parent2[id] != parent1[id]) children[fill[parent2[id]]++] = id;
+        }
+    }
+
+    int size() { return genotype.length; }
+    int epoch() { return epoch; }
+    int parent1(int id) { return parent1[id]; }
+    int parent2(int id) { return parent2[id]; }
+    int birthGeneration(int id) { return birthGeneration[id]; }
+    byte genotype(int id) { return genotype[id]; }
+
+    int childStart(int id) { return childStart[id]; }
+    int childEnd(int id) { return childStart[id + 1]; }
+    int child(int k) { return children[k]; }
+    int childCount(int id) { return childStart[id + 1] - childStart[id]; }
+
+    int livingCount() { return living.length; }
+    int living(int i) { return living[i]; }
+
+    // Oldest ancestor reached by following first parents
+    int rootOf(int id) {
+        while (parent1[id] != PedigreeStore.NO_PARENT) {
+            id = parent1[id];
+        }
+        return id;
+    }
+}
@@ -0,0 +1,122 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+
+// Everyone the family tree may still need, as int-indexed arrays instead of linked objects, so
+// dead branches can actually be dropped. Ids are handed out in birth order, so a parent always
+// has a smaller id than its child. Pruning relies on that: one sweep from the newest id down
+// finds every ancestor of the living, and compaction keeps the order.
+//
+// In ANCESTORS_OF_LIVING mode the store prunes itself whenever it has doubled since the last
+// prune. It keeps the living plus their ancestors born within `depth` generations. Anyone
+// without living descendants goes, as does ancestry older than that window. Memory is then
+// bounded by the population size and the depth, not the length of the run.
+class PedigreeStore {
+    static final int NO_PARENT = -1;
+
+    private static final int MIN_PRUNE_SIZE = 4096;
+
+    private final PedigreeRetention retention;
+    private final int depth;
+    int[] parent1 = new int[64];
+    int[] parent2 = new int[64];
+    int[] birthGeneration = new int[64];
+    byte[] genotype = new byte[64];
+    int size;
+    int epoch; // bumped by every prune, since pruning renumbers ids
+    int retainedAtLastPrune;
+
+    PedigreeStore(PedigreeRetention retention, int depth) {
+        this.retention = retention;
+        this.depth = depth;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int add(byte code, int mother, int father, int generation) {
+        if (size == genotype.length) {
+            int capacity = size * 2;
+            parent1 = Arrays.copyOf(parent1, capacity);
+            parent2 = Arrays.copyOf(parent2, capacity);
+            birthGeneration = Arrays.copyOf(birthGeneration, capacity);
+            genotype = Arrays.copyOf(genotype, capacity);
+        }
+        int id = size++;
+        parent1[id] = mother;
+        parent2[id] = father;
+        birthGeneration[id] = generation;
+        genotype[id] = code;
+        return id;
+    }
+
+    // Called once per tick with the pedigree ids of the living, which are rewritten in place
+    // if a prune renumbers them.
+    void maybePrune(int[] living, int livingCount, int generation) {
+        if (retention != PedigreeRetention.ANCESTORS_OF_LIVING) return;
+        if (size < Math.max(MIN_PRUNE_SIZE, retainedAtLastPrune * 2)) return;
+        prune(living, livingCount, generation);
+    }
+
+    void prune(int[] living, int livingCount, int generation) {
+        int horizon = generation - depth;
+        boolean[] keep = new boolean[size];
+        for (int i = 0; i < livingCount; i++) keep[living[i]] = true;
+        for (int id = size - 1; id >= 0; id--) {
+            if (!keep[id]) continue;
+            int p1 = parent1[id], p2 = parent2[id];
+            if (p1 != NO_PARENT && birthGeneration[p1] >= horizon) keep[p1] = true;
+            if (p2 != NO_PARENT && birthGeneration[p2] >= horizon) keep[p2] = true;
+        }
+
+        int[] remap = new int[size];
+        int next = 0;
+        for (int id = 0; id < size; id++) {
+            if (!keep[id]) {
+                remap[id] = NO_PARENT;
+                continue;
+            }
+            remap[id] = next;
+            int p1 = parent1[id], p2 = parent2[id];
+            parent1[next] = p1 == NO_PARENT ? NO_PARENT : remap[p1]; // parents come first, already mapped
+            parent2[next] = p2 == NO_PARENT ? NO_PARENT : remap[p2];
+            birthGeneration[next] = birthGeneration[id];
+            genotype[next] = genotype[id];
+            next++;
+        }
+        size = next;
+        retainedAtLastPrune = next;
+        epoch++;
+        for (int i = 0; i < livingCount; i++) living[i] = remap[living[i]];
+
+        if (size < genotype.length / 4 && genotype.length > 64) {
+            int capacity = Math.max(64, genotype.length / 2);
+            parent1 = Arrays.copyOf(parent1, capacity);
+            parent2 = Arrays.copyOf(parent2, capacity);
+            birthGeneration = Arrays.copyOf(birthGeneration, capacity);
+            genotype = Arrays.copyOf(genotype, capacity);
+        }
+    }
+
+    // Independent copy trimmed to size, for checkpoints
+    PedigreeStore copy() {
+        PedigreeStore copy = new PedigreeStore(retention, depth);
+        int capacity = Math.max(64, size);
+        copy.parent1 = Arrays.copyOf(parent1, capacity);
+        copy.parent2 = Arrays.copyOf(parent2, capacity);
+        copy.birthGeneration = Arrays.copyOf(birthGeneration, capacity);
+        copy.genotype = Arrays.copyOf(genotype, capacity);
+        copy.size = size;
+        copy.epoch = epoch;
+        copy.retainedAtLastPrune = retainedAtLastPrune;
+        return copy;
+    }
+
+    PedigreeSnapshot snapshot(int[] living, int livingCount) {
+        return new PedigreeSnapshot(
+                Arrays.copyOf(parent1, size), Arrays.copyOf(parent2, size),
+                Arrays.copyOf(birthGeneration, size), Arrays.copyOf(genotype, size),
+                Arrays.copyOf(living, livingCount), epoch);
+    }
+}
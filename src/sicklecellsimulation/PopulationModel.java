@@ -0,0 +1,52 @@
+package sicklecellsimulation;
+
+import java.util.function.Predicate;
+
+// Anything that can advance a population one generation at a time and report genotype counts:
+// the agent-based SimulationEngine or the count-only AggregateModel.
+public interface PopulationModel {
+    void step();
+
+    int getGenerationCount();
+    long getHealthyCount();
+    long getCarrierCount();
+    long getSickleCellCount();
+
+    // Replaces the selection rules, FitnessModel.DEFAULT unless set
+    void setFitnessModel(FitnessModel model);
+
+    void addListener(SimulationListener listener);
+    void removeListener(SimulationListener listener);
+
+    default long getPopulationSize() {
+        return getHealthyCount() + getCarrierCount() + getSickleCellCount();
+    }
+
+    default void step(int generations) {
+        for (int i = 0; i < generations; i++) {
+            step();
+        }
+    }
+
+    // Steps until the condition holds (checked before every generation) and returns how many
+    // generations were run.
+    default int runUntil(Predicate<PopulationModel> condition) {
+        return runUntil(condition, Integer.MAX_VALUE);
+    }
+
+    default int runUntil(Predicate<PopulationModel> condition, int maxGenerations) {
+        int steps = 0;
+        while (steps < maxGenerations && !condition.test(this)) {
+            step();
+            steps++;
+        }
+        return steps;
+    }
+
+    static PopulationModel create(SimulationConfig config) {
+        return switch (config.getMode()) {
+            case AGENT -> new SimulationEngine(config);
+            case AGGREGATE -> new AggregateModel(config);
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+
+// Living population kept as parallel primitive arrays (structure of arrays) instead of one
+// object per person. Index i in every array is the same individual. The engine scans these
+// arrays directly; Individual is only a cursor over them.
+class PopulationStore {
+    static final byte AA = 0;
+    static final byte AS = 1;
+    static final byte SS = 2;
+
+    private static final int MIN_CAPACITY = 16;
+
+    byte[] genotype;  // AA, AS or SS, also the number of S alleles; mutation changes it
+    int[] age;
+    float[] x;
+    float[] y;
+    float[] vx;
+    float[] vy;
+    int[] pedigreeId;  // id in the engine's PedigreeStore, null when no pedigree is kept
+    int size;          // slots [0, size) are alive, the rest is spare capacity
+
+    PopulationStore(boolean trackPedigree) {
+        this(trackPedigree, MIN_CAPACITY);
+    }
+
+    PopulationStore(boolean trackPedigree, int initialCapacity) {
+        int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+        genotype = new byte[capacity];
+        age = new int[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        if (trackPedigree) pedigreeId = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return genotype.length;
+    }
+
+    boolean tracksPedigree() {
+        return pedigreeId != null;
+    }
+
+    // Grows by doubling so a run of births costs O(1) each on average.
+    void ensureCapacity(int required) {
+        if (required <= genotype.length) return;
+        resize(Math.max(required, genotype.length * 2));
+    }
+
+    private void resize(int capacity) {
+        resizeFrom(this, capacity);
+    }
+
+    // Independent copy trimmed to size, for checkpoints
+    PopulationStore copy() {
+        PopulationStore copy = new PopulationStore(false, 0);
+        copy.resizeFrom(this, Math.max(MIN_CAPACITY, size));
+        copy.size = size;
+        return copy;
+    }
+
+    private void resizeFrom(PopulationStore from, int capacity) {
+        genotype = Arrays.copyOf(from.genotype, capacity);
+        age = Arrays.copyOf(from.age, capacity);
+        x = Arrays.copyOf(from.x, capacity);
+        y = Arrays.copyOf(from.y, capacity);
+        vx = Arrays.copyOf(from.vx, capacity);
+        vy = Arrays.copyOf(from.vy, capacity);
+        pedigreeId = from.pedigreeId == null ? null : Arrays.copyOf(from.pedigreeId, capacity);
+    }
+
+    int add(byte code, float px, float py, float pvx, float pvy, int pedigree) {
+        ensureCapacity(size + 1);
+        int i = size++;
+        genotype[i] = code;
+        age[i] = 0;
+        x[i] = px;
+        y[i] = py;
+        vx[i] = pvx;
+        vy[i] = pvy;
+        if (pedigreeId != null) pedigreeId[i] = pedigree;
+        return i;
+    }
+
+    // Moves the last individual into the removed slot. Order is not preserved.
+    void remove(int index) {
+        int last = --size;
+        if (index != last) {
+            genotype[index] = genotype[last];
+            age[index] = age[last];
+            x[index] = x[last];
+            y[index] = y[last];
+            vx[index] = vx[last];
+            vy[index] = vy[last];
+            if (pedigreeId != null) pedigreeId[index] = pedigreeId[last];
+        }
+    }
+
+    // Removes a whole tick's deaths in one compaction. The indices must be distinct; they are
+    // sorted in place. Going from the highest index down means the slot we swap in from the end
+    // is never one that is still waiting to be removed.
+    void removeAll(int[] indices, int count) {
+        if (count == 0) return;
+        Arrays.sort(indices, 0, count);
+        for (int k = count - 1; k >= 0; k--) {
+            remove(indices[k]);
+        }
+        if (size < genotype.length / 4 && genotype.length > MIN_CAPACITY) {
+            resize(Math.max(MIN_CAPACITY, genotype.length / 2));
+        }
+    }
+
+    static String name(byte code) {
+        return switch (code) {
+            case AA -> "AA";
+            case AS -> "AS";
+            default -> "SS";
+        };
+    }
+
+    static byte code(String genotype) {
+        return switch (genotype) {
+            case "AA" -> AA;
+            case "AS", "SA" -> AS;
+            default -> SS;
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package sicklecellsimulation;
+
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+// Every random number in a run comes from here. Streams are not handed out in sequence but
+// derived from (master seed, generation, pass, chunk), so each chunk of each pass gets its own
+// independent L64X128MixRandom no matter which thread runs it or in what order. Two runs with
+// the same seed and config are identical, and nothing is shared between threads.
+//
+// Because a stream is a pure function of those numbers, the only RNG state a run has is the
+// master seed and the generation count.
+class RandomStreams {
+    static final int POPULATE = 0;
+    static final int MUTATION = 1;
+    static final int BIRTHS = 2;
+    static final int MORTALITY = 3;
+    static final int DRIFT = 4;
+    static final int SWEEP = 5;     // sampling the sweep design, not a simulation pass
+    static final int MALARIA = 6;   // placing the malaria field's breeding sites
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final RandomGeneratorFactory<RandomGenerator> FACTORY =
+            RandomGeneratorFactory.of("L64X128MixRandom");
+
+    private final long seed;
+
+    RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    long seed() {
+        return seed;
+    }
+
+    RandomGenerator stream(int generation, int pass, int chunk) {
+        long key = mix(seed + GOLDEN_GAMMA * (generation + 1L));
+        key = mix(key + GOLDEN_GAMMA * (pass + 1L));
+        key = mix(key + GOLDEN_GAMMA * (chunk + 1L));
+        return FACTORY.create(key);
+    }
+
+    // Seed for the i-th independent replicate of a run started from this master seed
+    static long replicateSeed(long seed, int replicate) {
+        return mix(mix(seed) + GOLDEN_GAMMA * (replicate + 1L));
+    }
+
+    static long randomSeed() {
+        return FACTORY.create().nextLong();
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
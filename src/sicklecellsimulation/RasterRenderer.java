@@ -0,0 +1,162 @@
+package sicklecellsimulation;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+// Draws a FrameSnapshot by writing pixels straight into an int[]-backed image, then blits the
+// image in one drawImage call. That replaces one fillOval per individual, which was what
+// limited the frame rate for large populations. Each individual is stamped with a small
+// precomputed disc. Once there are more individuals than pixels, it draws a density heatmap
+// instead: opacity follows log density and colour follows the mean genotype at the pixel.
+// The image is transparent where nobody is, so whatever the panel draws on top stays as before.
+class RasterRenderer {
+    // ARGB colours for PopulationStore.AA, AS, SS
+    static final int[] PALETTE = {
+            GenotypePalette.argb(PopulationStore.AA), GenotypePalette.argb(PopulationStore.AS),
+            GenotypePalette.argb(PopulationStore.SS) };
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int width, height;
+
+    private int spriteSize = -1;
+    private int[] spriteDx = new int[0], spriteDy = new int[0];
+
+    private static final int ALPHA_TABLE_SIZE = 4096;
+    private static final int BLEND_STEPS = 64; // per unit of mean genotype code
+    private static final int[] BLENDS = new int[2 * BLEND_STEPS + 1];
+
+    static {
+        for (int i = 0; i < BLENDS.length; i++) BLENDS[i] = blend((double) i / BLEND_STEPS);
+    }
+
+    private long[] cells = new long[0]; // heatmap: S alleles << 32 | individuals, per pixel
+    private int[] alphaTable = new int[0];
+    private double alphaScale;
+
+    void paint(Graphics g, FrameSnapshot frame, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        render(frame, width, height);
+        g.drawImage(image, 0, 0, null);
+    }
+
+    void render(FrameSnapshot frame, int width, int height) {
+        ensureImage(width, height);
+        Arrays.fill(pixels, 0);
+        if ((long) frame.size > (long) width * height) {
+            renderDensity(frame);
+        } else {
+            renderSprites(frame, drawSize(frame.size));
+        }
+    }
+
+    // Same sizing the panel used for its ovals
+    static int drawSize(int population) {
+        return population > 200 ? Math.max(2, 10 - population / 800) : 10;
+    }
+
+    private void ensureImage(int width, int height) {
+        if (image != null && this.width == width && this.height == height) return;
+        this.width = width;
+        this.height = height;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private void renderSprites(FrameSnapshot frame, int size) {
+        buildSprite(size);
+        int[] dx = spriteDx, dy = spriteDy;
+        int w = width, h = height;
+        for (int i = 0; i < frame.size; i++) {
+            int color = PALETTE[frame.genotype[i]];
+            int x0 = (int) frame.x[i];
+            int y0 = (int) frame.y[i];
+            if (x0 >= 0 && y0 >= 0 && x0 + size <= w && y0 + size <= h) {
+                int base = y0 * w + x0;
+                for (int k = 0; k < dx.length; k++) {
+                    pixels[base + dy[k] * w + dx[k]] = color;
+                }
+            } else {
+                for (int k = 0; k < dx.length; k++) {
+                    int px = x0 + dx[k], py = y0 + dy[k];
+                    if (px >= 0 && py >= 0 && px < w && py < h) pixels[py * w + px] = color;
+                }
+            }
+        }
+    }
+
+    // Offsets of the pixels inside a disc of the given diameter, anchored at its top-left
+    // corner like fillOval
+    private void buildSprite(int size) {
+        if (size == spriteSize) return;
+        spriteSize = size;
+        int[] dx = new int[size * size], dy = new int[size * size];
+        int n = 0;
+        double r = size / 2.0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double cx = x + 0.5 - r, cy = y + 0.5 - r;
+                if (size <= 3 || cx * cx + cy * cy <= r * r) {
+                    dx[n] = x;
+                    dy[n] = y;
+                    n++;
+                }
+            }
+        }
+        spriteDx = Arrays.copyOf(dx, n);
+        spriteDy = Arrays.copyOf(dy, n);
+    }
+
+    private void renderDensity(FrameSnapshot frame) {
+        int w = width, h = height, n = w * h;
+        if (cells.length < n) {
+            cells = new long[n];
+        } else {
+            Arrays.fill(cells, 0, n, 0);
+        }
+
+        // One packed cell per pixel keeps the scatter to a single random write per individual
+        for (int i = 0; i < frame.size; i++) {
+            int x = (int) frame.x[i], y = (int) frame.y[i];
+            if (x < 0 || y < 0 || x >= w || y >= h) continue;
+            cells[y * w + x] += 1 + ((long) frame.genotype[i] << 32);
+        }
+
+        int max = 0;
+        for (int p = 0; p < n; p++) max = Math.max(max, (int) cells[p]);
+        if (max == 0) return;
+        double scale = 255 / Math.log1p(max);
+        int[] alpha = alphaTable(Math.min(max, ALPHA_TABLE_SIZE - 1), scale);
+
+        for (int p = 0; p < n; p++) {
+            long cell = cells[p];
+            int count = (int) cell;
+            if (count == 0) continue;
+            int a = count < alpha.length ? alpha[count] : Math.max(40, (int) (Math.log1p(count) * scale));
+            int sAlleles = (int) (cell >>> 32);
+            pixels[p] = (a << 24) | BLENDS[(int) ((long) sAlleles * BLEND_STEPS / count)];
+        }
+    }
+
+    private int[] alphaTable(int upTo, double scale) {
+        if (alphaTable.length <= upTo || alphaScale != scale) {
+            alphaTable = new int[upTo + 1];
+            for (int c = 1; c <= upTo; c++) alphaTable[c] = Math.max(40, (int) (Math.log1p(c) * scale));
+            alphaScale = scale;
+        }
+        return alphaTable;
+    }
+
+    // Colour for a mean genotype code in [0, 2], interpolated through the palette
+    private static int blend(double meanCode) {
+        int lo = Math.min(1, (int) meanCode);
+        double t = meanCode - lo;
+        int a = PALETTE[lo], b = PALETTE[lo + 1];
+        int r = (int) (((a >> 16) & 0xFF) * (1 - t) + ((b >> 16) & 0xFF) * t);
+        int g = (int) (((a >> 8) & 0xFF) * (1 - t) + ((b >> 8) & 0xFF) * t);
+        int bl = (int) ((a & 0xFF) * (1 - t) + (b & 0xFF) * t);
+        return (r << 16) | (g << 8) | bl;
+    }
+}
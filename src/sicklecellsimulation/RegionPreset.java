@@ -0,0 +1,49 @@
+package sicklecellsimulation;
+
+// The region presets from the control panel. Rates are fractions, as in SimulationConfig.
+public enum RegionPreset {
+    WEST_AFRICA("West Africa", 10, 0.001, false, true),
+    UNITED_STATES("United States", 1, 0.0005, true, false),
+    EUROPE("Europe", 0, 0.0001, true, false);
+
+    private final String label;
+    private final int sickleStartPercent;
+    private final double mutationRate;
+    private final boolean healthcare;
+    private final boolean malaria;
+
+    RegionPreset(String label, int sickleStartPercent, double mutationRate, boolean healthcare, boolean malaria) {
+        this.label = label;
+        this.sickleStartPercent = sickleStartPercent;
+        this.mutationRate = mutationRate;
+        this.healthcare = healthcare;
+        this.malaria = malaria;
+    }
+
+    public String getLabel() { return label; }
+    public int getSickleStartPercent() { return sickleStartPercent; }
+    public double getMutationRate() { return mutationRate; }
+    public boolean isHealthcareAvailable() { return healthcare; }
+    public boolean isMalariaRegion() { return malaria; }
+
+    public SimulationConfig applyTo(SimulationConfig config) {
+        return config.setSickleStartPercent(sickleStartPercent)
+                .setMutationRate(mutationRate)
+                .setHealthcareAvailable(healthcare)
+                .setMalariaRegion(malaria);
+    }
+
+    // Accepts the label or the constant name, in any case: "West Africa", "west-africa", "WEST_AFRICA"
+    public static RegionPreset named(String name) {
+        String key = name.trim().replace('-', '_').replace(' ', '_');
+        for (RegionPreset preset : values()) {
+            if (preset.name().equalsIgnoreCase(key)) return preset;
+        }
+        throw new IllegalArgumentException("Unknown region: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,47 @@
+package sicklecellsimulation;
+
+// Streaming mean/variance/min/max (Welford), so replicate results can be summarised without
+// keeping them. Two accumulators filled on different threads can be merged afterwards.
+class RunningStats {
+    private long count;
+    private double mean;
+    private double m2; // sum of squared deviations from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Chan et al. pairwise combination
+    void merge(RunningStats other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long count() { return count; }
+    double mean() { return count == 0 ? Double.NaN : mean; }
+    double variance() { return count < 2 ? 0 : m2 / (count - 1); }
+    double stdDev() { return Math.sqrt(variance()); }
+    double min() { return count == 0 ? Double.NaN : min; }
+    double max() { return count == 0 ? Double.NaN : max; }
+}
@@ -0,0 +1,71 @@
+package sicklecellsimulation;
+
+import java.util.random.RandomGenerator;
+
+// Discrete distributions for the count-based model. The binomial counts geometric gaps between
+// successes when few are expected (exact, O(np)) and uses a rounded normal otherwise (O(1)),
+// which keeps a draw on a billion trials as cheap as one on a hundred.
+final class Sampling {
+    private static final double NORMAL_THRESHOLD = 30;
+
+    private Sampling() {
+    }
+
+    static long binomial(RandomGenerator rng, long n, double p) {
+        if (n <= 0 || p <= 0) return 0;
+        if (p >= 1) return n;
+        if (p > 0.5) return n - binomial(rng, n, 1 - p);
+
+        double mean = n * p;
+        if (mean < NORMAL_THRESHOLD) {
+            double logQ = Math.log1p(-p);
+            long successes = 0;
+            long position = 0;
+            while (true) {
+                position += skip(rng, logQ) + 1;
+                if (position > n) return successes;
+                successes++;
+            }
+        }
+        long draw = Math.round(mean + Math.sqrt(mean * (1 - p)) * rng.nextGaussian());
+        return Math.max(0, Math.min(n, draw));
+    }
+
+    // Failures before the next success in trials that succeed with probability p, given
+    // logQ = log(1 - p). Capped at Integer.MAX_VALUE so callers can add it to an index freely.
+    static long skip(RandomGenerator rng, double logQ) {
+        double gap = Math.log(1 - rng.nextDouble()) / logQ;
+        return gap < Integer.MAX_VALUE ? (long) gap : Integer.MAX_VALUE;
+    }
+
+    // Splits n trials over the categories with the given probabilities (which must sum to 1)
+    // by drawing each category conditional on the ones before it.
+    static void multinomial(RandomGenerator rng, long n, double[] probabilities, long[] out) {
+        double remaining = 1;
+        for (int k = 0; k < probabilities.length; k++) {
+            if (k == probabilities.length - 1 || remaining <= 0) {
+                out[k] = n;
+            } else {
+                out[k] = binomial(rng, n, Math.min(1, probabilities[k] / remaining));
+            }
+            n -= out[k];
+            remaining -= probabilities[k];
+        }
+    }
+
+    // Index of a category picked with probability proportional to its weight, or -1 if all are 0
+    static int pick(RandomGenerator rng, double[] weights) {
+        double total = 0;
+        for (double w : weights) total += w;
+        if (total <= 0) return -1;
+        double target = rng.nextDouble() * total;
+        int last = -1;
+        for (int k = 0; k < weights.length; k++) {
+            if (weights[k] <= 0) continue;
+            last = k;
+            target -= weights[k];
+            if (target < 0) return k;
+        }
+        return last;
+    }
+}
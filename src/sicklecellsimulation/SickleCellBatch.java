@@ -0,0 +1,189 @@
+package sicklecellsimulation;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Command line entry point for runs without the GUI, e.g.
+//   java sicklecellsimulation.SickleCellBatch ensemble --replicates=500 --generations=2000 --drift
+public class SickleCellBatch {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        BatchOptions options = new BatchOptions(args, 1);
+        switch (args[0]) {
+            case "ensemble" -> runEnsemble(options);
+            case "sweep" -> runSweep(options);
+            case "run" -> runSingle(options);
+            case "compare" -> runCompare(options);
+            default -> usage();
+        }
+    }
+
+    private static void runEnsemble(BatchOptions options) throws InterruptedException {
+        int generations = options.getInt("generations", 1000);
+        EnsembleRunner runner = new EnsembleRunner(options.toConfig(), options.getInt("replicates", 100), generations)
+                .setReportInterval(options.getInt("interval", Math.max(1, generations / 100)));
+        if (options.has("threads")) runner.setThreads(options.getInt("threads", 1));
+        runner.run().print(System.out);
+    }
+
+    // The same ensemble (same seeds, same settings) in agent and aggregate mode, to check the two
+    // still agree. Fails with status 1 when the mean final S allele frequencies differ by more
+    // than the tolerance plus three standard errors, i.e. by more than sampling noise can
+    // explain. Aggregate mode is known to sit slightly low (see AggregateModel); the default
+    // tolerance allows for that.
+    private static void runCompare(BatchOptions options) throws InterruptedException {
+        int replicates = options.getInt("replicates", 100);
+        int generations = options.getInt("generations", 1000);
+        double tolerance = options.getDouble("tolerance", 0.01);
+        SimulationConfig config = options.toConfig();
+        RunningStats[] finals = new RunningStats[2];
+        SimulationMode[] modes = { SimulationMode.AGENT, SimulationMode.AGGREGATE };
+        for (int i = 0; i < modes.length; i++) {
+            EnsembleRunner runner = new EnsembleRunner(config.copy().setMode(modes[i]), replicates, generations)
+                    .setReportInterval(generations);
+            if (options.has("threads")) runner.setThreads(options.getInt("threads", 1));
+            EnsembleResult result = runner.run();
+            finals[i] = result.frequency[result.frequency.length - 1];
+            System.out.printf("%s\tfreq_mean=%.4f\tfreq_sd=%.4f\twall_clock=%.2fs%n", modes[i].name().toLowerCase(),
+                    finals[i].mean(), finals[i].stdDev(), result.getWallClockSeconds());
+        }
+        double difference = finals[1].mean() - finals[0].mean();
+        double error = Math.sqrt(finals[0].variance() / finals[0].count() + finals[1].variance() / finals[1].count());
+        boolean pass = Math.abs(difference) <= tolerance + 3 * error;
+        System.out.printf("# difference=%.4f se=%.4f z=%.2f tolerance=%.4f %s%n",
+                difference, error, error == 0 ? 0 : difference / error, tolerance, pass ? "PASS" : "FAIL");
+        if (!pass) System.exit(1);
+    }
+
+    // One run, recorded to a trajectory file (which GraphWindow can open afterwards) and/or
+    // streamed as CSV/NDJSON statistics. Agent runs can be checkpointed and resumed.
+    private static void runSingle(BatchOptions options) throws IOException {
+        SimulationConfig config;
+        PopulationModel model;
+        if (options.has("resume")) {
+            Checkpoint checkpoint = Checkpoint.read(Path.of(options.get("resume", "")));
+            config = checkpoint.getConfig();
+            model = checkpoint.resume();
+        } else {
+            config = options.toConfig();
+            model = PopulationModel.create(config);
+        }
+        String trajectoryPath = options.get("trajectory", options.has("export") ? null : "trajectory.sctraj");
+        TrajectoryWriter trajectory = null;
+        StatsExporter exporter = null;
+        Checkpointer checkpointer = null;
+        TickMetrics metrics = null;
+        long start = System.nanoTime();
+        try {
+            if (trajectoryPath != null) {
+                trajectory = new TrajectoryWriter(Path.of(trajectoryPath), config);
+                model.addListener(trajectory);
+            }
+            if (options.has("export")) {
+                String format = options.get("export-format", "");
+                exporter = StatsExporter.open(options.get("export", "-"),
+                        format.isEmpty() ? null : StatsExporter.Format.valueOf(format.toUpperCase()),
+                        options.getBoolean("gzip", false))
+                        .setSampleInterval(options.getInt("export-every", 1))
+                        .setFlushInterval(options.getInt("export-flush", 100));
+                model.addListener(exporter);
+            }
+            if (options.has("checkpoint")) {
+                if (!(model instanceof SimulationEngine engine)) {
+                    throw new IllegalArgumentException("checkpoints need --mode=agent");
+                }
+                checkpointer = new Checkpointer(engine, Path.of(options.get("checkpoint", "")),
+                        options.getInt("checkpoint-every", 1000));
+                model.addListener(checkpointer);
+            }
+            if (options.has("metrics")) {
+                if (!(model instanceof SimulationEngine engine)) {
+                    throw new IllegalArgumentException("tick metrics need --mode=agent");
+                }
+                metrics = new TickMetrics();
+                metrics.register("batch");
+                String period = options.get("metrics", "true");
+                metrics.startLogging(period.equals("true") ? 10 : Math.max(1, Integer.parseInt(period)), System.err);
+                engine.setMetrics(metrics);
+            }
+            // the starting generation, before the first step
+            for (SimulationListener listener : new SimulationListener[] { trajectory, exporter }) {
+                if (listener != null) {
+                    listener.generationCompleted(model.getGenerationCount(), model.getHealthyCount(),
+                            model.getCarrierCount(), model.getSickleCellCount());
+                }
+            }
+            model.step(options.getInt("generations", 1000));
+        } finally {
+            if (exporter != null) exporter.close();
+            if (trajectory != null) trajectory.close();
+            if (checkpointer != null) checkpointer.close();
+            if (metrics != null) {
+                metrics.close();
+                System.err.println(metrics.summary());
+            }
+        }
+        if (checkpointer != null) {
+            // and one of the end state, to carry on from with --resume
+            ((SimulationEngine) model).checkpoint().write(Path.of(options.get("checkpoint", "")));
+        }
+        System.err.printf("generation %d after %.1fs%n", model.getGenerationCount(), (System.nanoTime() - start) / 1e9);
+    }
+
+    // Any sweepable option given as a list (a,b,c) or range (lo:hi[:steps]) becomes an axis; the
+    // rest fix the base configuration.
+    private static void runSweep(BatchOptions options) throws IOException, InterruptedException {
+        ParameterSweep.Design design = options.get("design", "grid").equalsIgnoreCase("lhs")
+                ? ParameterSweep.Design.LATIN_HYPERCUBE : ParameterSweep.Design.GRID;
+        List<String[]> axes = new ArrayList<>();
+        for (String parameter : ParameterSweep.PARAMETERS) {
+            String spec = options.get(parameter, "");
+            if (spec.contains(",") || spec.contains(":") || spec.equalsIgnoreCase("all")) {
+                axes.add(new String[] { parameter, options.remove(parameter) });
+            }
+        }
+
+        ParameterSweep sweep = new ParameterSweep(options.toConfig())
+                .setDesign(design)
+                .setSamples(options.getInt("samples", 100))
+                .setReplicates(options.getInt("replicates", 10))
+                .setGenerations(options.getInt("generations", 1000));
+        if (options.has("threads")) sweep.setThreads(options.getInt("threads", 1));
+        for (String[] axis : axes) sweep.addAxis(axis[0], axis[1]);
+
+        String path = options.get("out", "-");
+        try (Writer out = new BufferedWriter(path.equals("-")
+                ? new OutputStreamWriter(System.out) : new FileWriter(path))) {
+            long start = System.nanoTime();
+            sweep.run(out);
+            System.err.printf("%d points in %.1fs%n", sweep.getPointCount(), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: SickleCellBatch ensemble|sweep|run|compare [options]");
+        System.err.println("  --mode=agent|aggregate --population=N --start=PERCENT --growth --drift");
+        System.err.println("  --reproduction=PERCENT --birth-cap=N (0 for none) --death=PERCENT --mutation=PERCENT");
+        System.err.println("  --healthcare=true|false --malaria=true|false --malaria-map --seed=N --parallel");
+        System.err.println("  --region=west-africa|united-states|europe");
+        System.err.println("  --replicates=N --generations=N --interval=N --threads=N");
+        System.err.println("sweep: give any of region, population, start, reproduction, death, mutation,");
+        System.err.println("  healthcare, malaria as a list a,b,c or a range lo:hi:steps (region=all for every preset)");
+        System.err.println("  --design=grid|lhs --samples=N --out=FILE");
+        System.err.println("run: --generations=N --trajectory=FILE");
+        System.err.println("  --export=FILE|- --export-format=csv|ndjson --gzip --export-every=K --export-flush=N");
+        System.err.println("  --checkpoint=FILE --checkpoint-every=N --resume=FILE (agent mode)");
+        System.err.println("  --metrics[=SECONDS] per-phase timings to stderr and JMX (agent mode)");
+        System.err.println("compare: the ensemble in both modes, --replicates=N --generations=N");
+        System.err.println("  --tolerance=X allowed difference in mean final S frequency beyond 3 SE (default 0.01)");
+    }
+}
@@ -0,0 +1,222 @@
+package sicklecellsimulation;
+
+import java.util.Properties;
+
+// All the parameters of one run. Plain data with no Swing in it, so the GUI, batch runs
+// and presets all build the same thing and hand it to a SimulationEngine.
+public class SimulationConfig {
+    private int populationSize = 100;
+    private int sickleStartPercent = 30;
+    private boolean allowGrowth;
+    private double reproductionRate = 0.02;
+    private int maxBirthsPerTick = 5; // 0 lets births follow the reproduction rate alone
+    private double deathRate = 0.01;
+    private double mutationRate = 0.005;
+    private boolean healthcareAvailable = true;
+    private boolean malariaRegion = true;
+    private boolean malariaMap; // malaria intensity varies over the world, see MalariaField
+    private boolean geneticDrift;
+    private boolean movement = true; // visual physics only, batch runs can switch it off
+    private PedigreeRetention pedigree = PedigreeRetention.ANCESTORS_OF_LIVING; // for the family tree view
+    private int pedigreeDepth = 200; // generations of ancestry kept behind the living
+    private boolean parallel; // split each tick's passes across the common fork-join pool
+    private SimulationMode mode = SimulationMode.AGENT;
+    private boolean ageClasses = true; // aggregate mode: track counts per age, not just genotype
+    private long seed = RandomStreams.randomSeed(); // fix it to repeat a run exactly
+    private int width = 800;
+    private int height = 600;
+
+    public SimulationConfig copy() {
+        SimulationConfig copy = new SimulationConfig();
+        copy.populationSize = populationSize;
+        copy.sickleStartPercent = sickleStartPercent;
+        copy.allowGrowth = allowGrowth;
+        copy.reproductionRate = reproductionRate;
+        copy.maxBirthsPerTick = maxBirthsPerTick;
+        copy.deathRate = deathRate;
+        copy.mutationRate = mutationRate;
+        copy.healthcareAvailable = healthcareAvailable;
+        copy.malariaRegion = malariaRegion;
+        copy.malariaMap = malariaMap;
+        copy.geneticDrift = geneticDrift;
+        copy.movement = movement;
+        copy.pedigree = pedigree;
+        copy.pedigreeDepth = pedigreeDepth;
+        copy.parallel = parallel;
+        copy.mode = mode;
+        copy.ageClasses = ageClasses;
+        copy.seed = seed;
+        copy.width = width;
+        copy.height = height;
+        return copy;
+    }
+
+    // Every field as text, for file headers that must say exactly how a run was set up
+    public Properties toProperties() {
+        Properties p = new Properties();
+        p.setProperty("populationSize", String.valueOf(populationSize));
+        p.setProperty("sickleStartPercent", String.valueOf(sickleStartPercent));
+        p.setProperty("allowGrowth", String.valueOf(allowGrowth));
+        p.setProperty("reproductionRate", String.valueOf(reproductionRate));
+        p.setProperty("maxBirthsPerTick", String.valueOf(maxBirthsPerTick));
+        p.setProperty("deathRate", String.valueOf(deathRate));
+        p.setProperty("mutationRate", String.valueOf(mutationRate));
+        p.setProperty("healthcareAvailable", String.valueOf(healthcareAvailable));
+        p.setProperty("malariaRegion", String.valueOf(malariaRegion));
+        p.setProperty("malariaMap", String.valueOf(malariaMap));
+        p.setProperty("geneticDrift", String.valueOf(geneticDrift));
+        p.setProperty("movement", String.valueOf(movement));
+        p.setProperty("pedigree", pedigree.name());
+        p.setProperty("pedigreeDepth", String.valueOf(pedigreeDepth));
+        p.setProperty("parallel", String.valueOf(parallel));
+        p.setProperty("mode", mode.name());
+        p.setProperty("ageClasses", String.valueOf(ageClasses));
+        p.setProperty("seed", String.valueOf(seed));
+        p.setProperty("width", String.valueOf(width));
+        p.setProperty("height", String.valueOf(height));
+        return p;
+    }
+
+    // Missing keys keep their defaults, so files written before a field existed still load
+    public static SimulationConfig fromProperties(Properties p) {
+        SimulationConfig c = new SimulationConfig();
+        c.populationSize = Integer.parseInt(p.getProperty("populationSize", String.valueOf(c.populationSize)));
+        c.sickleStartPercent = Integer.parseInt(p.getProperty("sickleStartPercent", String.valueOf(c.sickleStartPercent)));
+        c.allowGrowth = Boolean.parseBoolean(p.getProperty("allowGrowth", String.valueOf(c.allowGrowth)));
+        c.reproductionRate = Double.parseDouble(p.getProperty("reproductionRate", String.valueOf(c.reproductionRate)));
+        c.maxBirthsPerTick = Integer.parseInt(p.getProperty("maxBirthsPerTick", String.valueOf(c.maxBirthsPerTick)));
+        c.deathRate = Double.parseDouble(p.getProperty("deathRate", String.valueOf(c.deathRate)));
+        c.mutationRate = Double.parseDouble(p.getProperty("mutationRate", String.valueOf(c.mutationRate)));
+        c.healthcareAvailable = Boolean.parseBoolean(p.getProperty("healthcareAvailable", String.valueOf(c.healthcareAvailable)));
+        c.malariaRegion = Boolean.parseBoolean(p.getProperty("malariaRegion", String.valueOf(c.malariaRegion)));
+        c.malariaMap = Boolean.parseBoolean(p.getProperty("malariaMap", String.valueOf(c.malariaMap)));
+        c.geneticDrift = Boolean.parseBoolean(p.getProperty("geneticDrift", String.valueOf(c.geneticDrift)));
+        c.movement = Boolean.parseBoolean(p.getProperty("movement", String.valueOf(c.movement)));
+        c.pedigree = PedigreeRetention.valueOf(p.getProperty("pedigree", c.pedigree.name()));
+        c.pedigreeDepth = Integer.parseInt(p.getProperty("pedigreeDepth", String.valueOf(c.pedigreeDepth)));
+        c.parallel = Boolean.parseBoolean(p.getProperty("parallel", String.valueOf(c.parallel)));
+        c.mode = SimulationMode.valueOf(p.getProperty("mode", c.mode.name()));
+        c.ageClasses = Boolean.parseBoolean(p.getProperty("ageClasses", String.valueOf(c.ageClasses)));
+        c.seed = Long.parseLong(p.getProperty("seed", String.valueOf(c.seed)));
+        c.width = Integer.parseInt(p.getProperty("width", String.valueOf(c.width)));
+        c.height = Integer.parseInt(p.getProperty("height", String.valueOf(c.height)));
+        return c;
+    }
+
+    public int getPopulationSize() { return populationSize; }
+    public int getSickleStartPercent() { return sickleStartPercent; }
+    public boolean isAllowGrowth() { return allowGrowth; }
+    public double getReproductionRate() { return reproductionRate; }
+    public int getMaxBirthsPerTick() { return maxBirthsPerTick; }
+    public double getDeathRate() { return deathRate; }
+    public double getMutationRate() { return mutationRate; }
+    public boolean isHealthcareAvailable() { return healthcareAvailable; }
+    public boolean isMalariaRegion() { return malariaRegion; }
+    public boolean isMalariaMap() { return malariaMap; }
+    public boolean isGeneticDrift() { return geneticDrift; }
+    public boolean isMovement() { return movement; }
+    public PedigreeRetention getPedigree() { return pedigree; }
+    public int getPedigreeDepth() { return pedigreeDepth; }
+    public boolean isParallel() { return parallel; }
+    public SimulationMode getMode() { return mode; }
+    public boolean isAgeClasses() { return ageClasses; }
+    public long getSeed() { return seed; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    public SimulationConfig setPopulationSize(int populationSize) {
+        this.populationSize = populationSize;
+        return this;
+    }
+
+    public SimulationConfig setSickleStartPercent(int sickleStartPercent) {
+        this.sickleStartPercent = sickleStartPercent;
+        return this;
+    }
+
+    public SimulationConfig setAllowGrowth(boolean allowGrowth) {
+        this.allowGrowth = allowGrowth;
+        return this;
+    }
+
+    public SimulationConfig setReproductionRate(double reproductionRate) {
+        this.reproductionRate = reproductionRate;
+        return this;
+    }
+
+    public SimulationConfig setMaxBirthsPerTick(int maxBirthsPerTick) {
+        this.maxBirthsPerTick = maxBirthsPerTick;
+        return this;
+    }
+
+    public SimulationConfig setDeathRate(double deathRate) {
+        this.deathRate = deathRate;
+        return this;
+    }
+
+    public SimulationConfig setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+        return this;
+    }
+
+    public SimulationConfig setHealthcareAvailable(boolean healthcareAvailable) {
+        this.healthcareAvailable = healthcareAvailable;
+        return this;
+    }
+
+    public SimulationConfig setMalariaRegion(boolean malariaRegion) {
+        this.malariaRegion = malariaRegion;
+        return this;
+    }
+
+    public SimulationConfig setMalariaMap(boolean malariaMap) {
+        this.malariaMap = malariaMap;
+        return this;
+    }
+
+    public SimulationConfig setGeneticDrift(boolean geneticDrift) {
+        this.geneticDrift = geneticDrift;
+        return this;
+    }
+
+    public SimulationConfig setMovement(boolean movement) {
+        this.movement = movement;
+        return this;
+    }
+
+    public SimulationConfig setPedigree(PedigreeRetention pedigree) {
+        this.pedigree = pedigree;
+        return this;
+    }
+
+    public SimulationConfig setPedigreeDepth(int pedigreeDepth) {
+        this.pedigreeDepth = pedigreeDepth;
+        return this;
+    }
+
+    public SimulationConfig setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    public SimulationConfig setMode(SimulationMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public SimulationConfig setAgeClasses(boolean ageClasses) {
+        this.ageClasses = ageClasses;
+        return this;
+    }
+
+    public SimulationConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SimulationConfig setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+}
@@ -0,0 +1,510 @@
+package sicklecellsimulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+
+// The population model on its own: no Swing, no timer. Whoever owns it decides how often
+// step() is called - the GUI does it from its timer, batch runs just loop as fast as they can.
+public class SimulationEngine implements PopulationModel {
+    private final SimulationConfig config;
+    private final RandomStreams streams;
+    private final List<SimulationListener> listeners = new ArrayList<>();
+    private PopulationStore store;
+    private final PedigreeStore pedigree; // null when the config keeps none
+    private Individual cursor;
+    private final SpatialGrid grid = new SpatialGrid();
+    private int[] deaths = new int[16];
+    private int[] sampled = new int[16]; // a pass's sampled deaths, see sampleDeaths
+    private final ParentSampler parents = new ParentSampler();
+    private int deathCount;
+    private final ForkJoinPool pool; // null runs every pass on the calling thread
+    private float[] nextX = new float[0], nextY = new float[0], nextVx = new float[0], nextVy = new float[0];
+    private final int[] counts = new int[3]; // living per genotype, indexed by code
+    private int generationCount;
+    private int width, height;
+    private boolean geneticDrift;
+    private TickMetrics metrics; // null unless someone is watching
+    private FitnessModel fitnessModel;
+    private FitnessTable fitness;
+    private boolean malariaMap;
+    private MalariaField malariaField; // null unless the map is on in a malaria region
+
+    public SimulationEngine(SimulationConfig config) {
+        this(config, null);
+    }
+
+    // Continues a checkpointed run exactly where it stopped. The RNG needs no restoring: every
+    // stream is derived from the seed and the generation count.
+    SimulationEngine(Checkpoint checkpoint) {
+        this(checkpoint.config, checkpoint);
+    }
+
+    private SimulationEngine(SimulationConfig config, Checkpoint resume) {
+        this.config = config.copy();
+        this.width = Math.max(1, config.getWidth());
+        this.height = Math.max(1, config.getHeight());
+        this.geneticDrift = config.isGeneticDrift();
+        this.malariaMap = config.isMalariaMap();
+        this.pool = config.isParallel() ? ForkJoinPool.commonPool() : null;
+        this.streams = new RandomStreams(config.getSeed());
+        setFitnessModel(FitnessModel.DEFAULT);
+        if (resume == null) {
+            this.pedigree = config.getPedigree() == PedigreeRetention.NONE ? null
+                    : new PedigreeStore(config.getPedigree(), config.getPedigreeDepth());
+            populate();
+        } else {
+            this.pedigree = resume.pedigree == null ? null : resume.pedigree.copy();
+            this.store = resume.store.copy();
+            this.cursor = new Individual(store, 0);
+            this.generationCount = resume.generation;
+            counts[PopulationStore.AA] = resume.healthy;
+            counts[PopulationStore.AS] = resume.carriers;
+            counts[PopulationStore.SS] = resume.sickle;
+        }
+        setMalariaMap(malariaMap);
+        if (malariaField != null && resume != null && resume.malaria != null) malariaField.restore(resume.malaria);
+    }
+
+    private void populate() {
+        store = new PopulationStore(pedigree != null, config.getPopulationSize());
+        cursor = new Individual(store, 0);
+        RandomGenerator random = streams.stream(0, RandomStreams.POPULATE, 0);
+        for (int i = 0; i < config.getPopulationSize(); i++) {
+            byte genotype = getRandomGenotype(config.getSickleStartPercent(), random);
+            int id = pedigree == null ? PedigreeStore.NO_PARENT
+                    : pedigree.add(genotype, PedigreeStore.NO_PARENT, PedigreeStore.NO_PARENT, 0);
+            store.add(genotype, random.nextInt(width), random.nextInt(height),
+                    random.nextInt(3) - 1, random.nextInt(3) - 1, id);
+            counts[genotype]++;
+        }
+    }
+
+    private byte getRandomGenotype(int sickleStartPercent, RandomGenerator random) {
+        int roll = random.nextInt(100);  // Roll between 0 and 99
+
+        if (sickleStartPercent >= 100) {
+            // 100% sickle => random between AS and SS
+            return random.nextBoolean() ? PopulationStore.AS : PopulationStore.SS;
+        } else if (sickleStartPercent <= 0) {
+            // 0% sickle => all healthy
+            return PopulationStore.AA;
+        } else {
+            if (roll < sickleStartPercent / 2) {
+                return PopulationStore.SS;  // Homozygous sickle
+            } else if (roll < sickleStartPercent) {
+                return PopulationStore.AS;  // Carrier
+            } else {
+                return PopulationStore.AA;  // Healthy
+            }
+        }
+    }
+
+    @Override
+    public void addListener(SimulationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SimulationListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Advances the simulation by one generation.
+    @Override
+    public void step() {
+        TickMetrics metrics = this.metrics;
+        long tickStart = metrics == null ? 0 : System.nanoTime();
+        long t = tickStart;
+        generationCount++;
+
+        if (config.isMovement()) {
+            if (pool == null) {
+                grid.rebuild(store.x, store.y, store.size, width, height);
+                cursor.collisions = 0;
+                for (int i = 0; i < store.size; i++) {
+                    cursor.at(i).moveSmoothly(width, height, grid);
+                }
+                if (metrics != null) metrics.collisions.add(cursor.collisions);
+            } else {
+                moveParallel(metrics);
+            }
+            if (metrics != null) t = metrics.record(TickMetrics.Phase.MOVEMENT, t);
+        }
+        ChunkedPass.run(pool, store.size, (chunk, from, to) -> {
+            int[] ages = store.age;
+            for (int i = from; i < to; i++) {
+                ages[i]++;
+            }
+        });
+        if (metrics != null) t = metrics.record(TickMetrics.Phase.AGEING, t);
+
+        int mutations = mutate();
+        if (metrics != null) {
+            metrics.mutations.add(mutations);
+            t = metrics.record(TickMetrics.Phase.MUTATION, t);
+        }
+
+        // Reproduction
+        if (config.isAllowGrowth()) {
+            int populationSize = store.size;
+            int births = (int) Math.min(birthsThisTick(config, populationSize), Integer.MAX_VALUE - populationSize);
+
+            // Room for the whole tick's births up front; parents come from the pre-tick population
+            if (births > 0) {
+                store.ensureCapacity(populationSize + births);
+                parents.build(store, populationSize, counts);
+            }
+            if (parents.isEmpty()) births = 0;
+            RandomGenerator random = streams.stream(generationCount, RandomStreams.BIRTHS, 0);
+            for (int i = 0; i < births; i++) {
+                int parent1 = parents.draw(random);
+                int parent2 = parents.draw(random);
+                addNewIndividual(parent1, parent2, random);
+            }
+            if (metrics != null) {
+                metrics.births.add(births);
+                t = metrics.record(TickMetrics.Phase.REPRODUCTION, t);
+            }
+        }
+
+        if (malariaField != null) {
+            malariaField.step(pool);
+            if (metrics != null) t = metrics.record(TickMetrics.Phase.MALARIA, t);
+        }
+
+        int deathLimit = (int) (store.size * 0.1); // Max 10% per gen
+        if (deathLimit > 0) {
+            int found = sampleDeaths(RandomStreams.MORTALITY, fitness.max(), true);
+            found = limitDeaths(RandomStreams.MORTALITY, found, deathLimit);
+            for (int k = 0; k < found; k++) {
+                int dead = sampled[k];
+                if (markDead(dead >> 1) && metrics != null) {
+                    ((dead & 1) == 0 ? metrics.mortalityDeaths : metrics.ageDeaths).increment();
+                }
+            }
+        }
+        removeDead();
+        if (metrics != null) t = metrics.record(TickMetrics.Phase.MORTALITY, t);
+
+        // Genetic Drift - Random deaths (optional, toggleable)
+        if (geneticDrift) {
+            double driftChance = driftChance(store.size);
+
+            int maxDriftDeaths = (int) (store.size * 0.05); // Optional cap: 5% max deaths from drift
+            if (maxDriftDeaths > 0) {
+                int found = sampleDeaths(RandomStreams.DRIFT, driftChance, false);
+                found = limitDeaths(RandomStreams.DRIFT, found, maxDriftDeaths);
+                for (int k = 0; k < found; k++) {
+                    if (markDead(sampled[k] >> 1) && metrics != null) metrics.driftDeaths.increment();
+                }
+            }
+            removeDead();
+            if (metrics != null) t = metrics.record(TickMetrics.Phase.DRIFT, t);
+        }
+
+        if (pedigree != null) {
+            pedigree.maybePrune(store.pedigreeId, store.size, generationCount);
+            if (metrics != null) t = metrics.record(TickMetrics.Phase.PEDIGREE, t);
+        }
+
+        for (SimulationListener listener : listeners) {
+            listener.generationCompleted(generationCount, counts[PopulationStore.AA],
+                    counts[PopulationStore.AS], counts[PopulationStore.SS]);
+        }
+        if (metrics != null) {
+            metrics.record(TickMetrics.Phase.LISTENERS, t);
+            metrics.recordTick(System.nanoTime() - tickStart);
+        }
+    }
+
+    // Two-phase physics for the parallel mode. Everyone moves, then each individual works out its
+    // own response to its contacts from that shared state into scratch arrays, then the results
+    // are copied back. Nobody writes to anyone else's slot, so the outcome does not depend on
+    // which thread gets to a pair first.
+    private void moveParallel(TickMetrics metrics) {
+        int n = store.size;
+        int maxWidth = width, maxHeight = height;
+        ChunkedPass.run(pool, n, (chunk, from, to) -> {
+            float[] xs = store.x, ys = store.y, vxs = store.vx, vys = store.vy;
+            for (int i = from; i < to; i++) {
+                xs[i] += vxs[i];
+                ys[i] += vys[i];
+                if (xs[i] < 0 || xs[i] > maxWidth - 10) vxs[i] *= -1;
+                if (ys[i] < 0 || ys[i] > maxHeight - 10) vys[i] *= -1;
+            }
+        });
+
+        grid.rebuild(store.x, store.y, n, width, height);
+        if (nextX.length < n) {
+            nextX = new float[store.capacity()];
+            nextY = new float[store.capacity()];
+            nextVx = new float[store.capacity()];
+            nextVy = new float[store.capacity()];
+        }
+        ChunkedPass.run(pool, n, (chunk, from, to) -> {
+            Individual individual = new Individual(store, from);
+            for (int i = from; i < to; i++) {
+                individual.at(i).resolveCollisions(grid, nextX, nextY, nextVx, nextVy);
+            }
+            if (metrics != null) metrics.collisions.add(individual.collisions);
+        });
+
+        ChunkedPass.run(pool, n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                store.x[i] = Math.max(0, Math.min(nextX[i], maxWidth - 10));
+                store.y[i] = Math.max(0, Math.min(nextY[i], maxHeight - 10));
+                store.vx[i] = nextVx[i];
+                store.vy[i] = nextVy[i];
+            }
+        });
+    }
+
+    // Returns how many mutated
+    private int mutate() {
+        int n = store.size;
+        int chunks = ChunkedPass.chunks(n);
+        int[] delta = new int[chunks * 3];
+        ChunkedPass.run(pool, n, (chunk, from, to) ->
+                mutate(from, to, streams.stream(generationCount, RandomStreams.MUTATION, chunk), delta, chunk * 3));
+        int mutations = 0;
+        for (int c = 0; c < chunks; c++) {
+            applyCountDelta(delta, c * 3);
+            // every AA -> AS takes one from AA, every AS -> SS adds one to SS
+            mutations += delta[c * 3 + PopulationStore.SS] - delta[c * 3 + PopulationStore.AA];
+        }
+        return mutations;
+    }
+
+    // Mutates [from, to) and records the change in counts at delta[offset .. offset + 2]
+    private void mutate(int from, int to, RandomGenerator rng, int[] delta, int offset) {
+        double mutationRate = config.getMutationRate();
+        byte[] genotypes = store.genotype;
+        for (int i = from; i < to; i++) {
+            if (rng.nextDouble() < mutationRate) {
+                if (genotypes[i] == PopulationStore.AA) {
+                    genotypes[i] = PopulationStore.AS;
+                    delta[offset + PopulationStore.AS]++;
+                    delta[offset + PopulationStore.AA]--;
+                } else if (genotypes[i] == PopulationStore.AS) {
+                    genotypes[i] = PopulationStore.SS;
+                    delta[offset + PopulationStore.AS]--;
+                    delta[offset + PopulationStore.SS]++;
+                }
+            }
+        }
+    }
+
+    private void applyCountDelta(int[] delta, int offset) {
+        for (int g = 0; g < 3; g++) counts[g] += delta[offset + g];
+    }
+
+    // Every death of one pass, found in a single sweep: geometric skips over the array at rate
+    // `bound`, and with byRisk each landing is kept with the individual's own death probability
+    // divided by the bound. The work follows the number of deaths, not the population, and all
+    // of them are found instead of only the first. Each chunk draws from its own stream, so the
+    // result does not depend on threads.
+    //
+    // Leaves the hits in sampled[0, count) as the index shifted left once, with the low bit set
+    // when the roll fell in the old-age share of the risk, and returns the count.
+    private int sampleDeaths(int pass, double bound, boolean byRisk) {
+        int n = store.size;
+        if (bound <= 0 || n == 0) return 0;
+        double logQ = Math.log1p(-Math.min(1, bound));
+        int chunks = ChunkedPass.chunks(n);
+        int[][] hits = new int[chunks][];
+        int[] hitCounts = new int[chunks];
+        ChunkedPass.run(pool, n, (chunk, from, to) -> {
+            RandomGenerator rng = streams.stream(generationCount, pass, chunk);
+            byte[] genotypes = store.genotype;
+            int[] ages = store.age;
+            double[] risk = fitness.risk, oldAge = fitness.oldAge, malaria = fitness.malaria;
+            MalariaField field = malariaField;
+            float[] xs = store.x, ys = store.y;
+            int[] found = new int[8];
+            int k = 0;
+            for (long i = from + Sampling.skip(rng, logQ); i < to; i += 1 + Sampling.skip(rng, logQ)) {
+                int at = (int) i;
+                int code = at << 1;
+                if (byRisk) {
+                    double roll = rng.nextDouble() * bound;
+                    int cell = FitnessTable.index(genotypes[at], ages[at]);
+                    double own = risk[cell];
+                    if (field != null) own -= (1 - field.at(xs[at], ys[at])) * malaria[cell];
+                    if (roll >= own) continue;
+                    if (roll >= own - oldAge[cell]) code |= 1;
+                }
+                if (k == found.length) found = Arrays.copyOf(found, k * 2);
+                found[k++] = code;
+            }
+            hits[chunk] = found;
+            hitCounts[chunk] = k;
+        });
+
+        int total = 0;
+        for (int c = 0; c < chunks; c++) total += hitCounts[c];
+        if (sampled.length < total) sampled = new int[Math.max(total, sampled.length * 2)];
+        int at = 0;
+        for (int c = 0; c < chunks; c++) {
+            System.arraycopy(hits[c], 0, sampled, at, hitCounts[c]);
+            at += hitCounts[c];
+        }
+        return total;
+    }
+
+    // If more died than the cap allows, keeps a uniformly random `cap` of them at the front of
+    // sampled (a partial shuffle) so the cap does not favour any part of the array
+    private int limitDeaths(int pass, int found, int cap) {
+        if (found <= cap) return found;
+        RandomGenerator rng = streams.stream(generationCount, pass, -1); // chunk streams start at 0
+        for (int k = 0; k < cap; k++) {
+            int j = k + rng.nextInt(found - k);
+            int swap = sampled[k];
+            sampled[k] = sampled[j];
+            sampled[j] = swap;
+        }
+        return cap;
+    }
+
+    // Births due this tick, shared with AggregateModel: the reproduction rate of the population,
+    // held to the configured cap when there is one
+    static long birthsThisTick(SimulationConfig config, long populationSize) {
+        long births = (long) (populationSize * config.getReproductionRate());
+        int cap = config.getMaxBirthsPerTick();
+        return cap > 0 ? Math.min(births, cap) : births;
+    }
+
+    // Relative chance of being picked as a parent; SS parents are accepted 20% of the time
+    static double matingWeight(int genotype) {
+        return genotype == PopulationStore.SS ? 0.2 : 1;
+    }
+
+    // Chance per tick of a drift death, by population size
+    static double driftChance(long populationSize) {
+        if (populationSize < 500) {
+            return 0.02; // 2% random death if small pop
+        } else if (populationSize < 1000) {
+            return 0.005; // 0.5% random death if medium pop
+        } else {
+            return 0.001; // minimal drift in large pops
+        }
+    }
+
+    private void addNewIndividual(int parent1, int parent2, RandomGenerator random) {
+        // Inherit genotype
+        byte genotype = (byte) (cursor.at(parent1).getRandomAllele(random) + cursor.at(parent2).getRandomAllele(random));
+
+        // Create offspring near parents
+        int birthX = (int) ((store.x[parent1] + store.x[parent2]) / 2 + random.nextInt(20) - 10);
+        int birthY = (int) ((store.y[parent1] + store.y[parent2]) / 2 + random.nextInt(20) - 10);
+
+        int id = PedigreeStore.NO_PARENT;
+        if (pedigree != null) {
+            id = pedigree.add(genotype, store.pedigreeId[parent1], store.pedigreeId[parent2], generationCount);
+        }
+        store.add(genotype, birthX, birthY, random.nextInt(3) - 1, random.nextInt(3) - 1, id);
+        counts[genotype]++;
+    }
+
+    // Deaths are collected during a pass and compacted out together by removeDead(). False when
+    // the death was refused.
+    private boolean markDead(int index) {
+        if (store.size - deathCount <= 10) return false; // Prevent total wipeout
+        if (deathCount == deaths.length) deaths = Arrays.copyOf(deaths, deathCount * 2);
+        deaths[deathCount++] = index;
+        counts[store.genotype[index]]--;
+        return true;
+    }
+
+    private void removeDead() {
+        store.removeAll(deaths, deathCount);
+        deathCount = 0;
+    }
+
+
+    // The GUI changes these while a run is in progress.
+    public void setGeneticDrift(boolean geneticDrift) {
+        this.geneticDrift = geneticDrift;
+    }
+
+    // Models are arbitrary code and cannot be written into a checkpoint, so an engine with
+    // anything but the default refuses to checkpoint rather than resume under different rules
+    @Override
+    public void setFitnessModel(FitnessModel model) {
+        fitness = new FitnessTable(model, config);
+        fitnessModel = model;
+    }
+
+    public boolean isCheckpointable() {
+        return fitnessModel == FitnessModel.DEFAULT;
+    }
+
+    // Null turns instrumentation off again
+    public void setMetrics(TickMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void resize(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (width == this.width && height == this.height) return;
+        this.width = width;
+        this.height = height;
+        if (malariaField != null) malariaField = malariaField.resize(width, height);
+    }
+
+    // Malaria varying over the world instead of one level everywhere. Only means something in
+    // a malaria region; a new map starts from its settled pattern.
+    public void setMalariaMap(boolean malariaMap) {
+        this.malariaMap = malariaMap;
+        if (!malariaMap || !config.isMalariaRegion()) {
+            malariaField = null;
+        } else if (malariaField == null) {
+            malariaField = new MalariaField(width, height, config.getSeed(), pool);
+        }
+    }
+
+    MalariaField getMalariaField() {
+        return malariaField;
+    }
+
+    public long getSeed() {
+        return streams.seed();
+    }
+
+    public SimulationConfig getConfig() {
+        return config.copy();
+    }
+
+    // Copies the whole state between ticks. The copy is plain array copies, cheap enough to take
+    // on the simulation thread; writing it out can then happen anywhere.
+    public Checkpoint checkpoint() {
+        if (!isCheckpointable()) throw new IllegalStateException("a custom fitness model cannot be checkpointed");
+        SimulationConfig current = config.copy().setGeneticDrift(geneticDrift).setMalariaMap(malariaMap)
+                .setSize(width, height);
+        return new Checkpoint(current, generationCount, counts[PopulationStore.AA], counts[PopulationStore.AS],
+                counts[PopulationStore.SS], store.copy(), pedigree == null ? null : pedigree.copy(),
+                malariaField == null ? null : malariaField.values().clone());
+    }
+
+    @Override public long getPopulationSize() { return store.size; }
+    @Override public int getGenerationCount() { return generationCount; }
+    @Override public long getHealthyCount() { return counts[PopulationStore.AA]; }
+    @Override public long getCarrierCount() { return counts[PopulationStore.AS]; }
+    @Override public long getSickleCellCount() { return counts[PopulationStore.SS]; }
+
+    // Null when the config keeps no pedigree
+    PedigreeSnapshot getPedigreeSnapshot() {
+        return pedigree == null ? null : pedigree.snapshot(store.pedigreeId, store.size);
+    }
+
+    int getPedigreeSize() {
+        return pedigree == null ? 0 : pedigree.size();
+    }
+
+    PopulationStore getStore() {
+        return store;
+    }
+}
@@ -3,14 +3,18 @@ package sicklecellsimulation;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 
 
 public class SimulationFrame extends JFrame {
+    private static final int CHECKPOINT_INTERVAL = 1000; // generations
     private final SimulationPanel simulationPanel;
     private final JTextField populationSizeField, sickleCellStartField, reproductionRateField, deathRateField, mutationRateField;
-    private final JButton startButton, pauseButton, resetButton, showGraphButton, treeButton;
+    private final JButton startButton, pauseButton, resetButton, showGraphButton, treeButton, exportButton,
+            checkpointButton, resumeButton;
     private final JSlider speedSlider;
     private final JCheckBox growthToggle;
     private final JLabel populationLabel, healthyLabel, carrierLabel, sickleLabel, generationLabel;
@@ -18,6 +22,8 @@ public class SimulationFrame extends JFrame {
     public final JCheckBox healthcareToggle;
     private final JCheckBox malariaToggle;
     final JCheckBox driftToggle;
+    private final JCheckBox malariaMapToggle;
+    private final JCheckBox metricsToggle;
 
 
     public SimulationFrame() {
@@ -43,7 +49,11 @@ public class SimulationFrame extends JFrame {
         controlPanel.setPreferredSize(new Dimension(250, 700));
         //UI
 
-        String[] regions = { "West Africa", "United States", "Europe", "Custom" };
+        String[] regions = new String[RegionPreset.values().length + 1];
+        for (RegionPreset preset : RegionPreset.values()) {
+            regions[preset.ordinal()] = preset.getLabel();
+        }
+        regions[regions.length - 1] = "Custom";
         JComboBox<String> regionSelector = new JComboBox<>(regions);
         controlPanel.add(new JLabel("Region:"));
         controlPanel.add(regionSelector);
@@ -78,13 +88,22 @@ public class SimulationFrame extends JFrame {
         malariaToggle.setSelected(true);
         controlPanel.add(malariaToggle);
 
+        malariaMapToggle = new JCheckBox("Malaria Map");
+        malariaMapToggle.addItemListener(e -> simulationPanel.setMalariaMap(malariaMapToggle.isSelected()));
+        controlPanel.add(malariaMapToggle);
+
 
         growthToggle = new JCheckBox("Enable Population Growth");
         controlPanel.add(growthToggle);
 
         driftToggle = new JCheckBox("Enable Genetic Drift");
+        driftToggle.addItemListener(e -> simulationPanel.setGeneticDrift(driftToggle.isSelected()));
         controlPanel.add(driftToggle);
 
+        metricsToggle = new JCheckBox("Show Tick Metrics");
+        metricsToggle.addItemListener(e -> simulationPanel.setMetricsEnabled(metricsToggle.isSelected()));
+        controlPanel.add(metricsToggle);
+
 
         startButton = new JButton("Start");
         controlPanel.add(startButton);
@@ -100,6 +119,12 @@ public class SimulationFrame extends JFrame {
         controlPanel.add(showGraphButton);
         treeButton = new JButton("Show Family Tree");
         controlPanel.add(treeButton);
+        exportButton = new JButton("Export Stats...");
+        controlPanel.add(exportButton);
+        checkpointButton = new JButton("Checkpoint...");
+        controlPanel.add(checkpointButton);
+        resumeButton = new JButton("Resume...");
+        controlPanel.add(resumeButton);
 
         int buttonWidth = 200;
         Dimension buttonSize = new Dimension(buttonWidth, 35);
@@ -109,15 +134,23 @@ public class SimulationFrame extends JFrame {
         resetButton.setMaximumSize(buttonSize);
         showGraphButton.setMaximumSize(buttonSize);
         treeButton.setMaximumSize(buttonSize);
+        exportButton.setMaximumSize(buttonSize);
+        checkpointButton.setMaximumSize(buttonSize);
+        resumeButton.setMaximumSize(buttonSize);
         startButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         growthToggle.setAlignmentX(Component.CENTER_ALIGNMENT);
         pauseButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         resetButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         showGraphButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         treeButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        exportButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        checkpointButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        resumeButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         healthcareToggle.setAlignmentX(Component.CENTER_ALIGNMENT);
         malariaToggle.setAlignmentX(Component.CENTER_ALIGNMENT);
+        malariaMapToggle.setAlignmentX(Component.CENTER_ALIGNMENT);
         driftToggle.setAlignmentX(Component.CENTER_ALIGNMENT);
+        metricsToggle.setAlignmentX(Component.CENTER_ALIGNMENT);
 
 
 
@@ -129,9 +162,9 @@ public class SimulationFrame extends JFrame {
         legendPanel.setBackground(Color.WHITE);
         legendPanel.setAlignmentX(Component.LEFT_ALIGNMENT); // anchor to left
 
-        legendPanel.add(createLegendItem("Does not carry sickle cell (AA)", Color.BLUE));
-        legendPanel.add(createLegendItem("Carrier for sickle cell (AS)", new Color(128, 0, 128)));
-        legendPanel.add(createLegendItem("Has sickle cell anemia (SS)", Color.RED));
+        legendPanel.add(createLegendItem("Does not carry sickle cell (AA)", GenotypePalette.AA));
+        legendPanel.add(createLegendItem("Carrier for sickle cell (AS)", GenotypePalette.AS));
+        legendPanel.add(createLegendItem("Has sickle cell anemia (SS)", GenotypePalette.SS));
 
         // Wrap the legend
         JPanel legendWrapper = new JPanel(new BorderLayout());
@@ -297,28 +330,12 @@ public class SimulationFrame extends JFrame {
 
             String selectedRegion = (String) regionSelector.getSelectedItem();
 
-            switch (selectedRegion) {
-                case "West Africa":
-                    sickleCellStartField.setText("10");
-                    mutationRateField.setText("0.1");
-                    healthcareToggle.setSelected(false);
-                    malariaToggle.setSelected(true);
-                    break;
-                case "United States":
-                    sickleCellStartField.setText("1");
-                    mutationRateField.setText("0.05");
-                    healthcareToggle.setSelected(true);
-                    malariaToggle.setSelected(false);
-                    break;
-                case "Europe":
-                    sickleCellStartField.setText("0");
-                    mutationRateField.setText("0.01");
-                    healthcareToggle.setSelected(true);
-                    malariaToggle.setSelected(false);
-                    break;
-                case "Custom":
-                    break;
-
+            if (!"Custom".equals(selectedRegion)) {
+                RegionPreset preset = RegionPreset.named(selectedRegion);
+                sickleCellStartField.setText(String.valueOf(preset.getSickleStartPercent()));
+                mutationRateField.setText(String.valueOf(preset.getMutationRate() * 100));
+                healthcareToggle.setSelected(preset.isHealthcareAvailable());
+                malariaToggle.setSelected(preset.isMalariaRegion());
             }
 
 
@@ -331,6 +348,8 @@ public class SimulationFrame extends JFrame {
             boolean healthcare = healthcareToggle.isSelected();
             boolean malaria = malariaToggle.isSelected();
             simulationPanel.startSimulation(populationSize, sickleStartPercent, allowGrowth, reproductionRate, deathRate, mutationRate, healthcare, malaria);
+            exportButton.setText("Export Stats...");
+            checkpointButton.setText("Checkpoint...");
         });
 
         pauseButton.addActionListener(e -> {
@@ -338,7 +357,30 @@ public class SimulationFrame extends JFrame {
             pauseButton.setText(simulationPanel.isPaused() ? "Resume" : "Pause");
         });
 
-        resetButton.addActionListener(e -> simulationPanel.resetSimulation());
+        resetButton.addActionListener(e -> {
+            simulationPanel.resetSimulation();
+            exportButton.setText("Export Stats...");
+            checkpointButton.setText("Checkpoint...");
+        });
+
+        // .csv or .ndjson, optionally .gz; every generation, flushed every 100
+        exportButton.addActionListener(e -> {
+            if (simulationPanel.isExporting()) {
+                simulationPanel.stopExport();
+                exportButton.setText("Export Stats...");
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("stats.csv"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            try {
+                simulationPanel.startExport(StatsExporter.open(chooser.getSelectedFile().getPath(), null, false));
+                exportButton.setText("Stop Export");
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Could not export: " + ex.getMessage(), "Export",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
 
         showGraphButton.addActionListener(e -> {
             if (graphWindow == null) {
@@ -348,19 +390,48 @@ public class SimulationFrame extends JFrame {
             }
         });
         treeButton.addActionListener(e -> {
-            Individual root = simulationPanel.getRootAncestor();
-            if (root == null) return;
-
-            FamilyTreePanel panel = new FamilyTreePanel(root);
-            JScrollPane scrollPane = new JScrollPane(panel);
+            Object run = simulationPanel.currentRun();
+            simulationPanel.requestPedigree(run, pedigree -> {
+                if (pedigree != null && pedigree.livingCount() > 0) showFamilyTree(run, pedigree);
+            });
+        });
 
-            JFrame treeWindow = new JFrame("Family Tree Viewer");
-            treeWindow.setSize(1000, 800);
-            treeWindow.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-            treeWindow.add(scrollPane);
-            treeWindow.setVisible(true);
+        // Saves now and every CHECKPOINT_INTERVAL generations until stopped
+        checkpointButton.addActionListener(e -> {
+            if (simulationPanel.isCheckpointing()) {
+                simulationPanel.stopCheckpoints();
+                checkpointButton.setText("Checkpoint...");
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("simulation.ckpt"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            simulationPanel.startCheckpoints(chooser.getSelectedFile().toPath(), CHECKPOINT_INTERVAL);
+            if (simulationPanel.isCheckpointing()) checkpointButton.setText("Stop Checkpoints");
         });
 
+        resumeButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            Checkpoint checkpoint;
+            try {
+                checkpoint = Checkpoint.read(chooser.getSelectedFile().toPath());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Could not resume: " + ex.getMessage(), "Resume",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            SimulationConfig config = checkpoint.getConfig();
+            clearGraphData();
+            healthcareToggle.setSelected(config.isHealthcareAvailable());
+            malariaToggle.setSelected(config.isMalariaRegion());
+            growthToggle.setSelected(config.isAllowGrowth());
+            driftToggle.setSelected(config.isGeneticDrift());
+            malariaMapToggle.setSelected(config.isMalariaMap());
+            simulationPanel.resumeSimulation(checkpoint);
+            exportButton.setText("Export Stats...");
+            checkpointButton.setText("Checkpoint...");
+        });
     }
     private JPanel createLegendItem(String description, Color color) {
         JPanel item = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
@@ -380,6 +451,45 @@ public class SimulationFrame extends JFrame {
         item.add(text);
         return item;
     }
+    // Opens a tree viewer that keeps growing with `run`, one fresh copy a second at most; the
+    // layout only takes in what was appended. Once another run replaces it the window stays
+    // on where that run stopped.
+    private void showFamilyTree(Object run, PedigreeSnapshot pedigree) {
+        int root = pedigree.rootOf(pedigree.living(0)); // Go up as far as possible
+
+        FamilyTreePanel panel = new FamilyTreePanel(pedigree, root);
+        JScrollPane scrollPane = new JScrollPane(panel);
+
+        JFrame treeWindow = new JFrame("Family Tree Viewer");
+        treeWindow.setSize(1000, 800);
+        treeWindow.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        treeWindow.add(scrollPane);
+        treeWindow.setVisible(true);
+
+        boolean[] waiting = new boolean[1]; // a copy is on its way, don't ask for another
+        Timer treeRefresh = new Timer(1000, null);
+        treeRefresh.addActionListener(tick -> {
+            if (simulationPanel.currentRun() != run) {
+                treeRefresh.stop();
+                treeWindow.setTitle("Family Tree Viewer (run ended)");
+                return;
+            }
+            if (waiting[0]) return;
+            waiting[0] = true;
+            simulationPanel.requestPedigree(run, newer -> {
+                waiting[0] = false;
+                if (newer != null) panel.update(newer);
+            });
+        });
+        treeRefresh.start();
+        treeWindow.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent event) {
+                treeRefresh.stop();
+            }
+        });
+    }
+
     public void clearGraphData() {
         if (graphWindow != null) {
             graphWindow.clearGraph();  
@@ -388,15 +498,23 @@ public class SimulationFrame extends JFrame {
 
 
 
-    public void updateStats(int generation, int healthy, int carriers, int sickle) {
+    public void updateStats(int generation, long healthy, long carriers, long sickle) {
         populationLabel.setText("Total Population: " + (healthy + carriers + sickle));
         healthyLabel.setText("Healthy: " + healthy);
         carrierLabel.setText("Carriers: " + carriers);
         sickleLabel.setText("Affected (Sickle Cell): " + sickle);
         generationLabel.setText("Generations: " + generation);
+    }
 
+    public void addGraphPoint(int generation, long healthy, long carriers, long sickle) {
         if (graphWindow != null) {
             graphWindow.updateGraph(generation, healthy, carriers, sickle);
         }
     }
+
+    public void flushGraph() {
+        if (graphWindow != null) {
+            graphWindow.flush();
+        }
+    }
 }
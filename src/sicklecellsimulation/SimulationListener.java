@@ -0,0 +1,6 @@
+package sicklecellsimulation;
+
+// Called by the engine at the end of every generation, on the thread that is stepping it.
+public interface SimulationListener {
+    void generationCompleted(int generation, long healthy, long carriers, long sickle);
+}
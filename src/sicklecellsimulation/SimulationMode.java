@@ -0,0 +1,6 @@
+package sicklecellsimulation;
+
+public enum SimulationMode {
+    AGENT,     // every individual simulated, with positions and lineage
+    AGGREGATE  // genotype counts only, advanced by binomial sampling
+}
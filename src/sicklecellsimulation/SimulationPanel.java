@@ -2,74 +2,39 @@ package sicklecellsimulation;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Random;
 import java.util.List;
+import java.util.function.Consumer;
 
+// The simulation itself runs on a SimulationRunner thread; this panel only shows the latest
+// frame it published, refreshed at a fixed display rate.
 class SimulationPanel extends JPanel {
-    private int populationSize;
-    private Individual[] individuals;
-    private final Random random = new Random();
-    private Timer timer;
-    private int sickleCellCount, carrierCount, healthyCount, generationCount;
+    private static final int DISPLAY_INTERVAL = 16; // ms, about 60 frames a second
+
+    private SimulationRunner runner;
+    private FrameSnapshot shown;
+    private Timer display;
+    private final RasterRenderer renderer = new RasterRenderer();
+    private final MalariaLayer malariaLayer = new MalariaLayer();
+    private int tickDelay = 100;
     private SimulationFrame frame;
+    private StatsExporter exporter;
+    private Checkpointer checkpointer;
+    private TickMetrics metrics; // null when the overlay is off
     private boolean paused = false;
     private boolean allowGrowth;
     private boolean healthcareAvailable = true;
     private boolean malariaRegion;
-
-
-
-
+    private boolean geneticDrift;
+    private boolean malariaMap;
+    private int populationSize;
     private double reproductionRate, deathRate, mutationRate;
+
     public SimulationPanel() {
         setBackground(Color.WHITE);
-        timer = new Timer(100, e -> {
-            if (!paused) {
-                updateSimulation();
-                repaint();
-            }
-        });
-    }
-
-    private String getRandomGenotype(int sickleStartPercent) {
-        int roll = random.nextInt(100);  // Roll between 0 and 99
-
-        if (sickleStartPercent >= 100) {
-            // 100% sickle => random between AS and SS
-            return random.nextBoolean() ? "AS" : "SS";
-        } else if (sickleStartPercent <= 0) {
-            // 0% sickle => all healthy
-            return "AA";
-        } else {
-            if (roll < sickleStartPercent / 2) {
-                return "SS";  // Homozygous sickle
-            } else if (roll < sickleStartPercent) {
-                return "AS";  // Carrier
-            } else {
-                return "AA";  // Healthy
-            }
-        }
-    }
-
-
-    private void updateCounts(Individual ind) {
-        if (ind.isHealthy()) {
-            healthyCount++;
-        } else if (ind.isCarrier()) {
-            carrierCount++;
-        } else {
-            sickleCellCount++;
-        }
-    }
-    private void removeCounts(Individual ind) {
-        if (ind.isHealthy()) {
-            healthyCount--;
-        } else if (ind.isCarrier()) {
-            carrierCount--;
-        } else {
-            sickleCellCount--;
-        }
+        display = new Timer(DISPLAY_INTERVAL, e -> refresh());
     }
 
     public void setFrameReference(SimulationFrame frame) {
@@ -85,186 +50,179 @@ class SimulationPanel extends JPanel {
         this.mutationRate = mutationRate;
         this.healthcareAvailable = healthcare;
         this.malariaRegion = malariaRegion;
-        individuals = new Individual[populationSize];
-        sickleCellCount = 0;
-        carrierCount = 0;
-        healthyCount = 0;
-        generationCount = 0;
-
-        for (int i = 0; i < populationSize; i++) {
-            String genotype = getRandomGenotype(sickleStartPercent);
-            individuals[i] = new Individual(random.nextInt(getWidth()), random.nextInt(getHeight()), genotype);
-            updateCounts(individuals[i]);
-        }
 
-        timer.start();
-        repaint();
-        if (frame != null) {
-            frame.updateStats(generationCount, healthyCount, carrierCount, sickleCellCount);
-        }
+        SimulationConfig config = new SimulationConfig()
+                .setPopulationSize(populationSize)
+                .setSickleStartPercent(sickleStartPercent)
+                .setAllowGrowth(allowGrowth)
+                .setReproductionRate(reproductionRate)
+                .setDeathRate(deathRate)
+                .setMutationRate(mutationRate)
+                .setHealthcareAvailable(healthcare)
+                .setMalariaRegion(malariaRegion)
+                .setGeneticDrift(geneticDrift)
+                .setMalariaMap(malariaMap)
+                .setSize(getWidth(), getHeight());
+        run(new SimulationEngine(config));
     }
 
-    private void updateSimulation() {
-        generationCount++;
-
+    // Carries on a checkpointed run; reset afterwards starts over with its settings
+    public void resumeSimulation(Checkpoint checkpoint) {
+        SimulationConfig config = checkpoint.getConfig();
+        this.populationSize = config.getPopulationSize();
+        this.allowGrowth = config.isAllowGrowth();
+        this.reproductionRate = config.getReproductionRate();
+        this.deathRate = config.getDeathRate();
+        this.mutationRate = config.getMutationRate();
+        this.healthcareAvailable = config.isHealthcareAvailable();
+        this.malariaRegion = config.isMalariaRegion();
+        this.geneticDrift = config.isGeneticDrift();
+        this.malariaMap = config.isMalariaMap();
+        run(checkpoint.resume());
+    }
 
-        for (Individual individual : individuals) {
-            individual.moveSmoothly(getWidth(), getHeight(), individuals);
-            individual.incrementAge();
+    private void run(SimulationEngine engine) {
+        if (frame != null) {
+            frame.addGraphPoint(engine.getGenerationCount(), engine.getHealthyCount(),
+                    engine.getCarrierCount(), engine.getSickleCellCount());
         }
 
-        // Mutation Logic with Animation
-        for (Individual individual : individuals) {
-            if (Math.random() < mutationRate) {
-                if (individual.isHealthy()) {
-                    individual.becomeCarrier();
-                    carrierCount++;
-                    healthyCount--;
-                    individual.animateMutation(); // Mutation effect
-                } else if (individual.isCarrier()) {
-                    individual.becomeSickleCell();
-                    carrierCount--;
-                    sickleCellCount++;
-                    individual.animateMutation(); // Mutation effect
-                }
-            }
+        // Detached while the old runner still takes commands
+        stopExport(); // an export covers one run
+        stopCheckpoints();
+        if (runner != null) runner.stop();
+        shown = null;
+        if (metrics != null) {
+            metrics.close();
+            metrics = new TickMetrics(); // each run starts from zero
+            metrics.register("gui");
+            engine.setMetrics(metrics);
         }
+        runner = new SimulationRunner(engine, tickDelay);
+        runner.setPaused(paused);
+        runner.start();
+        display.start();
+    }
 
-        // Reproduction with Animation
-        if (allowGrowth) {
-            int maxBirthsPerTick = 5; // adjustable cap for realism
-            int births = Math.min((int)(populationSize * reproductionRate), maxBirthsPerTick);
-
-            for (int i = 0; i < births; i++) {
-                Individual newInd = addNewIndividual();
-                if (newInd != null) newInd.animateGrowth();
-            }
+    // Runs on the EDT at the display rate. Every generation goes to the graph; only the newest
+    // one is drawn.
+    private void refresh() {
+        if (runner == null) return;
+        runner.setSize(getWidth(), getHeight());
+        if (frame != null) {
+            runner.drainHistory(frame::addGraphPoint);
+            frame.flushGraph();
         }
-
-
-        int deathsThisGen = 0;
-        int deathLimit = (int)(populationSize * 0.1); // Max 10% per gen
-        for (int i = 0; i < individuals.length; i++) {
-            if (deathsThisGen >= deathLimit) break;
-
-            Individual ind = individuals[i];
-            if (ind == null) continue;
-
-            String g = ind.getGenotype();
-            int age = ind.getAge();
-            double adjustedDeathRate = deathRate;
-
-            // Age-based mortality model:
-            if (g.equals("SS")) {
-                if (age < 5) {
-                    adjustedDeathRate *= healthcareAvailable ? 0.05 : 0.9; // SS infants
-                } else {
-                    adjustedDeathRate *= healthcareAvailable ? 0.1 : 0.5;
-                }
-            } else if (g.equals("AS")) {
-                adjustedDeathRate *= 0.6;
-            } else if (g.equals("AA")) {
-                adjustedDeathRate *= 0.2;
-            }
-            // Optional: natural death for elderly
-            if (age > 30) {
-                adjustedDeathRate += 0.05;
-            }
-            if (Math.random() < adjustedDeathRate) {
-                ind.animateDeath();
-                removeRandomIndividual(i);
-                break;
-            }
-
+        FrameSnapshot next = runner.takeFrame();
+        if (next == null) return;
+        if (shown != null) runner.releaseFrame(shown);
+        shown = next;
+        if (frame != null) {
+            frame.updateStats(shown.generation, shown.healthy, shown.carriers, shown.sickle);
         }
-        // Genetic Drift - Random deaths (optional, toggleable)
-        if (frame.driftToggle.isSelected()) {
-            double driftChance;
-
-            if (populationSize < 500) {
-                driftChance = 0.02; // 2% random death if small pop
-            } else if (populationSize < 1000) {
-                driftChance = 0.005; // 0.5% random death if medium pop
-            } else {
-                driftChance = 0.001; // minimal drift in large pops
-            }
-
-            int randomDeathsThisGen = 0;
-            int maxDriftDeaths = (int)(populationSize * 0.05); // Optional cap: 5% max deaths from drift
-
-            for (int i = 0; i < individuals.length; i++) {
-                if (randomDeathsThisGen >= maxDriftDeaths) break;
-
-                Individual ind = individuals[i];
-                if (ind == null) continue;
-                if (Math.random() < driftChance) {
-                    ind.animateDeath();
-                    removeRandomIndividual(i);
+        repaint();
+    }
 
-                    break;
-                }
-            }
+    public void setGeneticDrift(boolean geneticDrift) {
+        this.geneticDrift = geneticDrift;
+        if (runner != null) {
+            SimulationRunner target = runner;
+            // runs on the simulation thread, between ticks
+            target.execute(() -> target.getEngine().setGeneticDrift(geneticDrift));
         }
+    }
 
-
-        repaint();
-        if (frame != null) {
-            frame.updateStats(generationCount, healthyCount, carrierCount, sickleCellCount);
+    public void setMalariaMap(boolean malariaMap) {
+        this.malariaMap = malariaMap;
+        if (runner != null) {
+            SimulationRunner target = runner;
+            target.execute(() -> target.getEngine().setMalariaMap(malariaMap));
         }
     }
-    public Individual getRandomIndividual() {
-        if (individuals == null || individuals.length == 0) return null;
-        return individuals[random.nextInt(individuals.length)];
-    }
-
-    private Individual addNewIndividual() {
-
-        // Select two random parents
-        Individual parent1, parent2;
-
-        do {
-            parent1 = individuals[random.nextInt(populationSize)];
-        } while (parent1.getGenotype().equals("SS") && Math.random() < 0.8);  // 80% chance to skip SS
-
-        do {
-            parent2 = individuals[random.nextInt(populationSize)];
-        } while (parent2.getGenotype().equals("SS") && Math.random() < 0.8);
 
+    // Streams this run's statistics until stopExport() or the next start/reset
+    public void startExport(StatsExporter exporter) {
+        stopExport();
+        this.exporter = exporter;
+        if (runner != null) {
+            SimulationRunner target = runner;
+            target.execute(() -> target.getEngine().addListener(exporter));
+        }
+    }
 
-        // Create offspring near parents
-        int birthX = (int) ((parent1.getX() + parent2.getX()) / 2 + random.nextInt(20) - 10);
-        int birthY = (int) ((parent1.getY() + parent2.getY()) / 2 + random.nextInt(20) - 10);
-
-        Individual newInd = new Individual(birthX, birthY, parent1, parent2);
-        parent1.addChild(newInd);
-        parent2.addChild(newInd);
-
-        // Resize array to accommodate new individual
-        Individual[] newPop = new Individual[populationSize + 1];
-        System.arraycopy(individuals, 0, newPop, 0, populationSize);
-        newPop[populationSize] = newInd;
-        individuals = newPop;
+    public void stopExport() {
+        if (exporter == null) return;
+        StatsExporter finished = exporter;
+        exporter = null;
+        if (runner != null) {
+            SimulationRunner target = runner;
+            target.execute(() -> target.getEngine().removeListener(finished));
+        }
+        try {
+            finished.close();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Export failed: " + e.getMessage(), "Export",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-        populationSize++;
-        updateCounts(newInd);
+    public boolean isExporting() {
+        return exporter != null;
+    }
 
-        return newInd;
+    // Checkpoints the run now and then every `interval` generations, until stopCheckpoints()
+    // or the next start/reset. The first checkpoint is taken on the simulation thread.
+    public void startCheckpoints(Path path, int interval) {
+        stopCheckpoints();
+        if (runner == null) return;
+        SimulationRunner target = runner;
+        Checkpointer created = new Checkpointer(target.getEngine(), path, interval);
+        checkpointer = created;
+        target.execute(() -> {
+            target.getEngine().addListener(created);
+            created.save();
+        });
     }
 
-    private void removeRandomIndividual(int indexToRemove) {
-        if (populationSize <= 10) return; // Prevent total wipeout
-        removeCounts(individuals[indexToRemove]);
+    public void stopCheckpoints() {
+        if (checkpointer == null) return;
+        Checkpointer finished = checkpointer;
+        checkpointer = null;
+        if (runner != null) {
+            SimulationRunner target = runner;
+            target.execute(() -> target.getEngine().removeListener(finished));
+        }
+        // Saves stop at close() even if the runner never gets to the detach
+        try {
+            finished.close();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Checkpoint failed: " + e.getMessage(), "Checkpoint",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-        // Move last individual to the removed slot to avoid shifting array
+    public boolean isCheckpointing() {
+        return checkpointer != null;
+    }
 
-        individuals[indexToRemove] = individuals[populationSize - 1];
-        Individual[] newPop = new Individual[populationSize - 1];
-        System.arraycopy(individuals, 0, newPop, 0, populationSize - 1);
-        individuals = newPop;
-        populationSize--;
+    // Per-phase timings and counters for the running engine, drawn over the simulation and
+    // published over JMX. Turning it off detaches it, so the engine pays nothing.
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (metrics != null)) return;
+        TickMetrics attached = enabled ? new TickMetrics() : null;
+        if (metrics != null) metrics.close();
+        metrics = attached;
+        if (attached != null) attached.register("gui");
+        if (runner != null) {
+            SimulationRunner target = runner;
+            target.execute(() -> target.getEngine().setMetrics(attached));
+        }
+        repaint();
     }
+
     public void resetSimulation() {
-        timer.stop();
+        stopCheckpoints();
+        if (runner != null) runner.stop();
 
         if (frame != null) {
             frame.clearGraphData();
@@ -284,27 +242,38 @@ class SimulationPanel extends JPanel {
             startSimulation(populationSize, 30, allowGrowth, reproductionRate, deathRate, mutationRate, healthcareAvailable, malariaRegion);
         }
         paused = false;
+        runner.setPaused(false);
     }
 
 
     public void togglePause() {
         paused = !paused;
+        if (runner != null) runner.setPaused(paused);
     }
 
-    public Individual getRootAncestor() {
-        if (individuals == null || individuals.length == 0) return null;
+    // The pedigree keeps growing on the simulation thread, so viewers get a copy taken there
+    // between ticks and handed to `then` on the EDT; the EDT never waits for a tick. `then` gets
+    // null when the run keeps no pedigree, and is not called at all if `run` (see currentRun)
+    // has been replaced by the time the copy arrives.
+    public void requestPedigree(Object run, Consumer<PedigreeSnapshot> then) {
+        SimulationRunner target = runner;
+        if (target == null || target != run) return;
+        target.execute(() -> {
+            PedigreeSnapshot snapshot = target.getEngine().getPedigreeSnapshot();
+            SwingUtilities.invokeLater(() -> {
+                if (runner == target) then.accept(snapshot);
+            });
+        });
+    }
 
-        Individual best = individuals[0];
-        while (best.getParent1() != null) {
-            best = best.getParent1(); // Go up as far as possible
-        }
-        System.out.println("Root genotype: " + best.getGenotype());
-        System.out.println("Root children: " + best.getChildren().size());
-        return best;
+    // Identifies the run in progress for requestPedigree; a start, reset or resume replaces it
+    public Object currentRun() {
+        return runner;
     }
 
     public void setSpeed(int speed) {
-        timer.setDelay(Math.max(speed, 1)); //
+        tickDelay = Math.max(speed, 1);
+        if (runner != null) runner.setTickDelay(tickDelay);
     }
     public boolean isPaused() {
         return paused;
@@ -313,29 +282,29 @@ class SimulationPanel extends JPanel {
 
     @Override
     protected void paintComponent(Graphics g) {
+        long paintStart = System.nanoTime();
         super.paintComponent(g);
+        if (shown != null) malariaLayer.paint(g, shown);
+
+        long healthyCount = 0, carrierCount = 0, sickleCellCount = 0;
+        if (shown != null) {
+            healthyCount = shown.healthy;
+            carrierCount = shown.carriers;
+            sickleCellCount = shown.sickle;
+        }
 
         g.setColor(Color.BLACK);
         g.drawString("Genotype Distribution:", 10, 100);
-        g.setColor(Color.BLUE);
+        g.setColor(GenotypePalette.AA);
         g.drawString("AA: " + healthyCount, 10, 120);
-        g.setColor(new Color(128, 0, 128));
+        g.setColor(GenotypePalette.AS);
         g.drawString("AS: " + carrierCount, 10, 140);
-        g.setColor(Color.RED);
+        g.setColor(GenotypePalette.SS);
         g.drawString("SS: " + sickleCellCount, 10, 160);
 
 
-        if (individuals != null) {
-            int drawSize = 10; // default size
-
-            if (individuals.length > 200) {
-                drawSize = Math.max(2, 10 - individuals.length / 800); // shrink if large population
-            }
-
-            for (Individual individual : individuals) {
-                individual.draw(g, drawSize);
-            }
-
+        if (shown != null) {
+            renderer.paint(g, shown, getWidth(), getHeight());
         }
         if (malariaRegion) {
             g.setColor(new Color(0, 100, 0, 180)); // green banner
@@ -358,25 +327,59 @@ class SimulationPanel extends JPanel {
         int barWidth = 40;
         int baseY = getHeight() - 50;
 
-        int total = healthyCount + carrierCount + sickleCellCount;
+        long total = healthyCount + carrierCount + sickleCellCount;
         if (total == 0) total = 1;
 
         int aaHeight = (int)((healthyCount * 100.0 / total) * 2);
         int asHeight = (int)((carrierCount * 100.0 / total) * 2);
         int ssHeight = (int)((sickleCellCount * 100.0 / total) * 2);
 
-        g.setColor(Color.BLUE);
+        g.setColor(GenotypePalette.AA);
         g.fillRect(10, baseY - aaHeight, barWidth, aaHeight);
         g.drawString("AA", 15, baseY + 15);
 
-        g.setColor(new Color(128, 0, 128));
+        g.setColor(GenotypePalette.AS);
         g.fillRect(60, baseY - asHeight, barWidth, asHeight);
         g.drawString("AS", 65, baseY + 15);
 
-        g.setColor(Color.RED);
+        g.setColor(GenotypePalette.SS);
         g.fillRect(110, baseY - ssHeight, barWidth, ssHeight);
         g.drawString("SS", 115, baseY + 15);
 
+        if (metrics != null) {
+            metrics.record(TickMetrics.Phase.PAINT, paintStart);
+            drawMetrics(g, metrics);
+        }
+    }
+
+    // Top-right box: mean time per phase and the running counters
+    private void drawMetrics(Graphics g, TickMetrics metrics) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("ticks %d, mean %.0f us, p99 %.0f us", metrics.getTicks(),
+                metrics.getMeanTickMicros(), metrics.getP99TickMicros()));
+        for (TickMetrics.Phase phase : TickMetrics.Phase.values()) {
+            TickMetrics.Histogram h = metrics.phase(phase);
+            if (h.count() > 0) {
+                lines.add(String.format("%-12s %8.1f us", phase.name().toLowerCase(), h.mean() / 1e3));
+            }
+        }
+        lines.add("births " + metrics.getBirths() + ", mutations " + metrics.getMutations());
+        lines.add("deaths " + metrics.getMortalityDeaths() + " genotype, " + metrics.getAgeDeaths() + " age, "
+                + metrics.getDriftDeaths() + " drift");
+        lines.add("collisions " + metrics.getCollisions());
+
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        FontMetrics fm = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) width = Math.max(width, fm.stringWidth(line));
+        int x = getWidth() - width - 20, y = 10;
+        g.setColor(new Color(0, 0, 0, 170));
+        g.fillRect(x, y, width + 12, lines.size() * fm.getHeight() + 8);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < lines.size(); i++) {
+            g.drawString(lines.get(i), x + 6, y + 4 + fm.getAscent() + i * fm.getHeight());
+        }
+
     }
 
 
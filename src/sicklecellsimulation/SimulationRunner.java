@@ -0,0 +1,167 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives a SimulationEngine on its own thread so the tick rate no longer depends on how fast
+// Swing can paint. Only this thread touches the engine; everything else talks to it through:
+//
+//  - execute/submit: commands queued and run between ticks (settings changes, tree queries)
+//  - takeFrame/releaseFrame: the newest FrameSnapshot. Snapshots rotate between being filled
+//    here, published, and on screen, so neither side ever waits. A new frame is only copied
+//    once the view has taken the previous one, so intermediate generations are dropped
+//    without being copied.
+//  - drainHistory: every generation's counts since the last drain, so the graph and labels
+//    still see generations that were never drawn.
+class SimulationRunner {
+    private final SimulationEngine engine;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    private final AtomicReference<FrameSnapshot> published = new AtomicReference<>();
+    private final AtomicReference<FrameSnapshot> returned = new AtomicReference<>();
+    private boolean dirty = true; // simulation thread only: engine has moved since last publish
+
+    private final Object historyLock = new Object();
+    private long[] history = new long[256]; // generation, healthy, carriers, sickle per row
+    private int historyRows;
+
+    private volatile boolean running = true;
+    private volatile boolean paused;
+    private volatile long tickNanos;
+    private volatile int width, height;
+
+    SimulationRunner(SimulationEngine engine, int tickMillis) {
+        this.engine = engine;
+        this.tickNanos = tickMillis * 1_000_000L;
+        SimulationConfig config = engine.getConfig();
+        this.width = config.getWidth();
+        this.height = config.getHeight();
+        engine.addListener(this::recordHistory);
+        thread = new Thread(this::loop, "simulation");
+        thread.setDaemon(true);
+    }
+
+    // Only for use from commands and queries, which run on the simulation thread
+    SimulationEngine getEngine() {
+        return engine;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    void execute(Runnable command) {
+        commands.add(command);
+        LockSupport.unpark(thread);
+    }
+
+    <T> Future<T> submit(Callable<T> query) {
+        FutureTask<T> task = new FutureTask<>(query);
+        execute(task);
+        return task;
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+        LockSupport.unpark(thread);
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    void setTickDelay(int millis) {
+        tickNanos = Math.max(0, millis) * 1_000_000L;
+        LockSupport.unpark(thread);
+    }
+
+    void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    // Newest frame not yet taken, or null. Give the previous frame back with releaseFrame.
+    FrameSnapshot takeFrame() {
+        return published.getAndSet(null);
+    }
+
+    void releaseFrame(FrameSnapshot frame) {
+        returned.set(frame);
+    }
+
+    void drainHistory(SimulationListener to) {
+        long[] rows;
+        int count;
+        synchronized (historyLock) {
+            if (historyRows == 0) return;
+            rows = history;
+            count = historyRows;
+            history = new long[Math.max(256, count * 4)];
+            historyRows = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int r = i * 4;
+            to.generationCompleted((int) rows[r], rows[r + 1], rows[r + 2], rows[r + 3]);
+        }
+    }
+
+    private void recordHistory(int generation, long healthy, long carriers, long sickle) {
+        synchronized (historyLock) {
+            int r = historyRows * 4;
+            if (r + 4 > history.length) {
+                history = Arrays.copyOf(history, history.length * 2);
+            }
+            history[r] = generation;
+            history[r + 1] = healthy;
+            history[r + 2] = carriers;
+            history[r + 3] = sickle;
+            historyRows++;
+        }
+    }
+
+    private void loop() {
+        long lastTick = System.nanoTime() - tickNanos;
+        while (running) {
+            for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+                command.run();
+                dirty = true;
+            }
+            if (dirty && published.get() == null) publish();
+
+            long now = System.nanoTime();
+            long nextTick = lastTick + tickNanos;
+            if (paused || now < nextTick) {
+                // Woken early by commands, unpausing and speed changes. The cap keeps
+                // pending frames flowing to the view while we wait.
+                long wait = paused ? 50_000_000L : Math.min(nextTick - now, 16_000_000L);
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            engine.resize(width, height);
+            engine.step();
+            dirty = true;
+            lastTick = now;
+        }
+    }
+
+    // Only called once the view has taken the previous frame
+    private void publish() {
+        FrameSnapshot frame = returned.getAndSet(null);
+        if (frame == null) frame = new FrameSnapshot();
+        frame.copyFrom(engine);
+        published.set(frame);
+        dirty = false;
+    }
+}
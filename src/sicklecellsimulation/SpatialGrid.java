@@ -0,0 +1,73 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+
+// Uniform grid over the panel used to find collision candidates. Cells are as wide as the
+// collision distance, so anyone close enough to touch is in the same or an adjacent cell.
+// Rebuilt from scratch every tick with a counting sort: individuals in cell c are
+// items[cellStart[c]] .. items[cellStart[c + 1] - 1].
+class SpatialGrid {
+    static final float CELL_SIZE = 12;
+
+    private int cols = 1, rows = 1;
+    private int[] cellStart = new int[2];
+    private int[] cellOf = new int[0];
+    private int[] items = new int[0];
+
+    void rebuild(float[] xs, float[] ys, int n, int width, int height) {
+        cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (cellOf.length < n) {
+            cellOf = new int[n];
+            items = new int[n];
+        }
+
+        // Count per cell, prefix-sum into start offsets, then scatter
+        for (int i = 0; i < n; i++) {
+            int c = cellY(ys[i]) * cols + cellX(xs[i]);
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cells);
+        for (int i = 0; i < n; i++) {
+            items[next[cellOf[i]]++] = i;
+        }
+    }
+
+    int cellX(float x) {
+        return Math.max(0, Math.min(cols - 1, (int) (x / CELL_SIZE)));
+    }
+
+    int cellY(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) (y / CELL_SIZE)));
+    }
+
+    int cols() {
+        return cols;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int start(int cell) {
+        return cellStart[cell];
+    }
+
+    int end(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    int item(int k) {
+        return items[k];
+    }
+}
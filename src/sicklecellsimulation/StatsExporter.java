@@ -0,0 +1,158 @@
+package sicklecellsimulation;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Streams per-generation statistics as CSV or NDJSON. Add it as a listener: the simulation
+// thread only offers each row to a bounded queue and a separate thread does the formatting and
+// writing, so a slow disk never holds up a tick. If the queue is full the row is dropped and
+// counted instead; close() reports how many.
+public class StatsExporter implements SimulationListener, Closeable {
+    public enum Format { CSV, NDJSON }
+
+    private static final int DEFAULT_QUEUE = 1 << 16;
+    private static final long[] END = new long[0];
+    private static final String[] COLUMNS = { "generation", "healthy", "carriers", "sickle", "population",
+            "s_allele_frequency", "heterozygosity", "expected_heterozygosity" };
+
+    private final Format format;
+    private final Writer out;
+    private final BlockingQueue<long[]> queue;
+    private final Thread thread;
+    private int sampleInterval = 1;
+    private int flushInterval = 100;
+    private volatile long dropped;
+    private volatile IOException failure;
+
+    public StatsExporter(OutputStream stream, Format format) {
+        this(stream, format, DEFAULT_QUEUE);
+    }
+
+    public StatsExporter(OutputStream stream, Format format, int queueCapacity) {
+        this.format = format;
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        thread = new Thread(this::drain, "stats-exporter");
+        thread.start();
+    }
+
+    // "-" is stdout, which is flushed but left open at the end. Gzip is used when asked for or
+    // when the name ends in .gz; the format is NDJSON for .json/.ndjson names unless given.
+    public static StatsExporter open(String path, Format format, boolean gzip) throws IOException {
+        String name = path.endsWith(".gz") ? path.substring(0, path.length() - 3) : path;
+        if (format == null) {
+            format = name.endsWith(".json") || name.endsWith(".ndjson") ? Format.NDJSON : Format.CSV;
+        }
+        OutputStream stream = path.equals("-")
+                ? new FilterOutputStream(System.out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                }
+                : new FileOutputStream(path);
+        if (gzip || path.endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, 1 << 16, true); // sync flush, so flushes reach the file
+        }
+        return new StatsExporter(stream, format);
+    }
+
+    // Only every k-th generation is exported
+    public StatsExporter setSampleInterval(int generations) {
+        this.sampleInterval = Math.max(1, generations);
+        return this;
+    }
+
+    // The output is flushed once this many generations have passed since the last flush
+    public StatsExporter setFlushInterval(int generations) {
+        this.flushInterval = Math.max(1, generations);
+        return this;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public void generationCompleted(int generation, long healthy, long carriers, long sickle) {
+        if (generation % sampleInterval != 0) return;
+        if (!queue.offer(new long[] { generation, healthy, carriers, sickle })) {
+            dropped++; // only the simulation thread writes this
+        }
+    }
+
+    private void drain() {
+        try {
+            if (format == Format.CSV) {
+                out.write(String.join(",", COLUMNS));
+                out.write('\n');
+            }
+            long lastFlush = -flushInterval; // so the first row flushes without overflowing
+            for (long[] row = queue.take(); row != END; row = queue.take()) {
+                write(row);
+                if (row[0] - lastFlush >= flushInterval) {
+                    out.flush();
+                    lastFlush = row[0];
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(long[] row) throws IOException {
+        long generation = row[0], healthy = row[1], carriers = row[2], sickle = row[3];
+        long population = healthy + carriers + sickle;
+        double q = EnsembleRunner.sAlleleFrequency(healthy, carriers, sickle);
+        double heterozygosity = population == 0 ? 0 : (double) carriers / population;
+        double expected = 2 * q * (1 - q); // Hardy-Weinberg
+        if (format == Format.CSV) {
+            out.write(generation + "," + healthy + "," + carriers + "," + sickle + "," + population + ","
+                    + q + "," + heterozygosity + "," + expected + "\n");
+        } else {
+            out.write("{\"generation\":" + generation + ",\"healthy\":" + healthy + ",\"carriers\":" + carriers
+                    + ",\"sickle\":" + sickle + ",\"population\":" + population + ",\"s_allele_frequency\":" + q
+                    + ",\"heterozygosity\":" + heterozygosity + ",\"expected_heterozygosity\":" + expected + "}\n");
+        }
+    }
+
+    // Writes out whatever is still queued and closes the output. Detach the exporter from the
+    // model first, or rows arriving afterwards are dropped.
+    @Override
+    public void close() throws IOException {
+        try {
+            while (thread.isAlive() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                // the writer is catching up
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            out.close();
+        }
+        if (failure != null) throw failure;
+        if (dropped > 0) {
+            System.err.println("stats export: " + dropped + " generations dropped, the writer fell behind");
+        }
+    }
+}
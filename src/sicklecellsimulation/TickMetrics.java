@@ -0,0 +1,167 @@
+package sicklecellsimulation;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Where a tick's time goes, and what happened in it. The engine only records into this when one
+// is set with SimulationEngine.setMetrics; without it each phase costs a null check.
+//
+// Everything is lock-free so the simulation thread, the parallel passes, the EDT (painting) and
+// readers (JMX, the log line, the overlay) never wait on each other. Phase times go into log2
+// histograms: bucket b holds durations in [2^(b-1), 2^b) ns, which is enough for percentiles
+// to within a factor of two at no cost per sample beyond two atomic adds.
+public class TickMetrics implements TickMetricsMXBean {
+    public enum Phase { MOVEMENT, AGEING, MUTATION, REPRODUCTION, MALARIA, MORTALITY, DRIFT, PEDIGREE, LISTENERS, PAINT }
+
+    static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) total.sum() / n;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // Upper bound of the bucket holding the q-th quantile
+        long quantile(double q) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int b = 0; b < 64; b++) {
+                seen += buckets.get(b);
+                if (seen >= rank) return b == 0 ? 0 : Math.min(max(), (1L << b) - 1);
+            }
+            return max();
+        }
+    }
+
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Histogram ticks = new Histogram();
+    final LongAdder births = new LongAdder();
+    final LongAdder mortalityDeaths = new LongAdder();
+    final LongAdder ageDeaths = new LongAdder();
+    final LongAdder driftDeaths = new LongAdder();
+    final LongAdder mutations = new LongAdder();
+    final LongAdder collisions = new LongAdder();
+    private ObjectName registeredAs;
+    private ScheduledExecutorService logger;
+
+    public TickMetrics() {
+        for (int p = 0; p < phases.length; p++) phases[p] = new Histogram();
+    }
+
+    // Records the phase that started at `since` and returns now, the start of the next one
+    long record(Phase phase, long since) {
+        long now = System.nanoTime();
+        phases[phase.ordinal()].record(now - since);
+        return now;
+    }
+
+    void recordTick(long nanos) {
+        ticks.record(nanos);
+    }
+
+    Histogram phase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    @Override public long getTicks() { return ticks.count(); }
+    @Override public double getMeanTickMicros() { return ticks.mean() / 1e3; }
+    @Override public double getP99TickMicros() { return ticks.quantile(0.99) / 1e3; }
+    @Override public long getBirths() { return births.sum(); }
+    @Override public long getMortalityDeaths() { return mortalityDeaths.sum(); }
+    @Override public long getAgeDeaths() { return ageDeaths.sum(); }
+    @Override public long getDriftDeaths() { return driftDeaths.sum(); }
+    @Override public long getMutations() { return mutations.sum(); }
+    @Override public long getCollisions() { return collisions.sum(); }
+
+    @Override
+    public Map<String, Double> getPhaseMeanMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) means.put(phase.name(), phase(phase).mean() / 1e3);
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        Map<String, Double> p99 = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) p99.put(phase.name(), phase(phase).quantile(0.99) / 1e3);
+        return p99;
+    }
+
+    // One line: ticks, mean tick time, each phase's mean, and the counters
+    public String summary() {
+        StringBuilder line = new StringBuilder();
+        line.append(String.format("ticks=%d tick=%.1fus p99=%.1fus |", getTicks(), getMeanTickMicros(), getP99TickMicros()));
+        for (Phase phase : Phase.values()) {
+            Histogram h = phase(phase);
+            if (h.count() > 0) line.append(String.format(" %s=%.1fus", phase.name().toLowerCase(), h.mean() / 1e3));
+        }
+        line.append(String.format(" | births=%d deaths=%d/%d/%d (mortality/age/drift) mutations=%d collisions=%d",
+                getBirths(), getMortalityDeaths(), getAgeDeaths(), getDriftDeaths(), getMutations(), getCollisions()));
+        return line.toString();
+    }
+
+    // Visible in JConsole/VisualVM as sicklecellsimulation:type=TickMetrics,name=<name>
+    public void register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("sicklecellsimulation:type=TickMetrics,name=" + ObjectName.quote(name));
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+            registeredAs = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void startLogging(long periodSeconds, PrintStream out) {
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tick-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> out.println(summary()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stops the log line and takes the MBean down
+    public void close() {
+        if (logger != null) logger.shutdownNow();
+        if (registeredAs != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+            } catch (JMException ignored) {
+                // already gone
+            }
+            registeredAs = null;
+        }
+    }
+}
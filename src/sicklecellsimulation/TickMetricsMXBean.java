@@ -0,0 +1,18 @@
+package sicklecellsimulation;
+
+import java.util.Map;
+
+// What TickMetrics shows over JMX
+public interface TickMetricsMXBean {
+    long getTicks();
+    double getMeanTickMicros();
+    double getP99TickMicros();
+    long getBirths();
+    long getMortalityDeaths();
+    long getAgeDeaths();
+    long getDriftDeaths();
+    long getMutations();
+    long getCollisions();
+    Map<String, Double> getPhaseMeanMicros();
+    Map<String, Double> getPhaseP99Micros();
+}
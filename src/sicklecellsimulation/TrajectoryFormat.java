@@ -0,0 +1,37 @@
+package sicklecellsimulation;
+
+// Layout of a trajectory file: one row per recorded generation, stored in fixed-size blocks
+// with each column contiguous inside its block.
+//
+//   header   MAGIC, VERSION, BLOCK_ROWS, row count, length of the config text, then the
+//            SimulationConfig as properties text (parameters and seed). Padded to HEADER_ALIGN.
+//   blocks   each BLOCK_BYTES long: row count (int) and 4 bytes padding, then the columns
+//            generation int[BLOCK_ROWS], healthy, carriers, sickle and population
+//            long[BLOCK_ROWS], S allele frequency double[BLOCK_ROWS]
+//
+// Every block is full size on disk, including the last one, so row r is always in block
+// r / BLOCK_ROWS at a fixed offset. Numbers are big-endian (ByteBuffer's default).
+final class TrajectoryFormat {
+    static final long MAGIC = 0x5343_5452_414A_0001L; // "SCTRAJ" 0 1
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+    static final int HEADER_ALIGN = 4096;
+
+    static final int ROW_COUNT_OFFSET = 16; // after MAGIC, VERSION and BLOCK_ROWS
+
+    static final int GENERATION = 8;
+    static final int HEALTHY = GENERATION + 4 * BLOCK_ROWS;
+    static final int CARRIERS = HEALTHY + 8 * BLOCK_ROWS;
+    static final int SICKLE = CARRIERS + 8 * BLOCK_ROWS;
+    static final int POPULATION = SICKLE + 8 * BLOCK_ROWS;
+    static final int FREQUENCY = POPULATION + 8 * BLOCK_ROWS;
+    static final int BLOCK_BYTES = FREQUENCY + 8 * BLOCK_ROWS;
+
+    private TrajectoryFormat() {
+    }
+
+    static long dataOffset(int configLength) {
+        long end = ROW_COUNT_OFFSET + 8 + 4 + configLength;
+        return (end + HEADER_ALIGN - 1) / HEADER_ALIGN * HEADER_ALIGN;
+    }
+}
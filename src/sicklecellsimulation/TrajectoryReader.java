@@ -0,0 +1,128 @@
+package sicklecellsimulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+import static sicklecellsimulation.TrajectoryFormat.*;
+
+// Random access to a trajectory file through memory mapping, so only the pages actually read
+// are loaded. A single mapping is limited to 2 GB, so the data is mapped in regions of whole
+// blocks, each mapped the first time a row inside it is read.
+public class TrajectoryReader implements Closeable {
+    private static final int BLOCKS_PER_REGION = (1 << 30) / BLOCK_BYTES; // about 1 GB
+
+    private final FileChannel channel;
+    private final SimulationConfig config;
+    private final long dataOffset;
+    private final long rows;
+    private final MappedByteBuffer[] regions;
+
+    public TrajectoryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = ByteBuffer.allocate(ROW_COUNT_OFFSET + 12);
+            channel.read(fixed, 0);
+            fixed.flip();
+            if (fixed.remaining() < fixed.capacity() || fixed.getLong() != MAGIC) {
+                throw new IOException(path + " is not a trajectory file");
+            }
+            int version = fixed.getInt();
+            int blockRows = fixed.getInt();
+            if (version != VERSION || blockRows != BLOCK_ROWS) {
+                throw new IOException(path + ": unsupported trajectory version " + version);
+            }
+            long recordedRows = fixed.getLong();
+            int configLength = fixed.getInt();
+
+            ByteBuffer text = ByteBuffer.allocate(configLength);
+            channel.read(text, ROW_COUNT_OFFSET + 12);
+            Properties properties = new Properties();
+            properties.load(new InputStreamReader(new ByteArrayInputStream(text.array()), StandardCharsets.UTF_8));
+            config = SimulationConfig.fromProperties(properties);
+
+            dataOffset = dataOffset(configLength);
+            long blocks = (channel.size() - dataOffset) / BLOCK_BYTES;
+            regions = new MappedByteBuffer[(int) ((blocks + BLOCKS_PER_REGION - 1) / BLOCKS_PER_REGION)];
+            // A zero count means the writer never closed; recover it from the last block
+            rows = recordedRows > 0 || blocks == 0 ? recordedRows
+                    : (blocks - 1) * BLOCK_ROWS + region(blocks - 1).getInt(offset(blocks - 1));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public SimulationConfig getConfig() {
+        return config.copy();
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    public int generation(long row) {
+        long block = row / BLOCK_ROWS;
+        return region(block).getInt(offset(block) + GENERATION + 4 * (int) (row % BLOCK_ROWS));
+    }
+
+    public long healthy(long row) { return column(row, HEALTHY); }
+    public long carriers(long row) { return column(row, CARRIERS); }
+    public long sickle(long row) { return column(row, SICKLE); }
+    public long population(long row) { return column(row, POPULATION); }
+
+    public double frequency(long row) {
+        long block = row / BLOCK_ROWS;
+        return region(block).getDouble(offset(block) + FREQUENCY + 8 * (int) (row % BLOCK_ROWS));
+    }
+
+    // First row recorded at or after the generation; generations only increase down the file
+    public long findGeneration(int generation) {
+        long lo = 0, hi = rows;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (generation(mid) < generation) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long column(long row, int column) {
+        long block = row / BLOCK_ROWS;
+        return region(block).getLong(offset(block) + column + 8 * (int) (row % BLOCK_ROWS));
+    }
+
+    private static int offset(long block) {
+        return (int) (block % BLOCKS_PER_REGION) * BLOCK_BYTES;
+    }
+
+    private MappedByteBuffer region(long block) {
+        int r = (int) (block / BLOCKS_PER_REGION);
+        MappedByteBuffer region = regions[r];
+        if (region == null) {
+            long start = dataOffset + (long) r * BLOCKS_PER_REGION * BLOCK_BYTES;
+            try {
+                long length = Math.min((long) BLOCKS_PER_REGION * BLOCK_BYTES, channel.size() - start);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            regions[r] = region;
+        }
+        return region;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,84 @@
+package sicklecellsimulation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static sicklecellsimulation.TrajectoryFormat.*;
+
+// Records a run to a trajectory file (see TrajectoryFormat). Add it as a listener. Rows are
+// gathered into one block-sized direct buffer and written with a single channel write per
+// block. The row count in the header is filled in by close(); a file left by a crash still
+// holds all of its complete blocks.
+public class TrajectoryWriter implements SimulationListener, Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES);
+    private final long dataOffset;
+    private long rows;
+    private int blockRows;
+
+    public TrajectoryWriter(Path path, SimulationConfig config) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        config.toProperties().store(text, null);
+        byte[] configBytes = text.toString(StandardCharsets.ISO_8859_1).getBytes(StandardCharsets.UTF_8);
+
+        dataOffset = dataOffset(configBytes.length);
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset);
+        header.putLong(MAGIC).putInt(VERSION).putInt(BLOCK_ROWS).putLong(0).putInt(configBytes.length).put(configBytes);
+        header.rewind();
+        while (header.hasRemaining()) channel.write(header);
+    }
+
+    @Override
+    public void generationCompleted(int generation, long healthy, long carriers, long sickle) {
+        try {
+            append(generation, healthy, carriers, sickle);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void append(int generation, long healthy, long carriers, long sickle) throws IOException {
+        int r = blockRows++;
+        block.putInt(GENERATION + 4 * r, generation);
+        block.putLong(HEALTHY + 8 * r, healthy);
+        block.putLong(CARRIERS + 8 * r, carriers);
+        block.putLong(SICKLE + 8 * r, sickle);
+        block.putLong(POPULATION + 8 * r, healthy + carriers + sickle);
+        block.putDouble(FREQUENCY + 8 * r, EnsembleRunner.sAlleleFrequency(healthy, carriers, sickle));
+        rows++;
+        if (blockRows == BLOCK_ROWS) writeBlock();
+    }
+
+    private void writeBlock() throws IOException {
+        block.putInt(0, blockRows);
+        block.clear();
+        while (block.hasRemaining()) channel.write(block);
+        block.clear();
+        // zero the tail so a short final block has no stale rows from the previous one
+        for (int i = 0; i < BLOCK_BYTES; i += 8) block.putLong(i, 0);
+        blockRows = 0;
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockRows > 0) writeBlock();
+            channel.write(ByteBuffer.allocate(8).putLong(0, rows), ROW_COUNT_OFFSET);
+        } finally {
+            channel.close();
+        }
+    }
+}
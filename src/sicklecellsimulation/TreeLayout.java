@@ -0,0 +1,297 @@
+package sicklecellsimulation;
+
+import java.util.Arrays;
+
+// Positions for the family tree viewer, worked out once per pedigree change instead of on every
+// paint. The pedigree is a DAG, since everyone has two parents; the viewer shows it as a tree
+// under one root. Each descendant appears once, under its first parent that is in the tree.
+//
+// Everything here runs in loops over ids rather than by recursion. A parent's id is always
+// smaller than its children's, so an ascending pass sees parents first (tree membership,
+// depth, x) and a descending pass sees children first (subtree sizes and genotype counts).
+// Appended births are folded into the sizes by the same descending pass, carrying only what
+// was added, rather than each walking its own path to the root (thousands of rows deep after
+// a long run). The x coordinates, which shift for every later sibling, are then redone in one
+// linear pass at the end of the update, so painting only ever reads finished arrays.
+//
+// The row index is the viewer's spatial index: the ids at each depth sorted by x, so the nodes
+// inside a clip rectangle are a binary search per visible row. Only a rebuild sorts the rows;
+// an append never reorders the nodes already in a row (everything right of the new node moves
+// by the same SLOT), so updates merge the new nodes into the existing order. Edges are indexed by their child:
+// each row also records how far its children's edges reach sideways and the rows they span.
+class TreeLayout {
+    static final int SLOT = 24;             // horizontal space per node in a subtree
+    static final int VERTICAL_SPACING = 80;
+
+    private PedigreeSnapshot pedigree;
+    private int root;
+    private int[] treeParent = new int[0];  // -1 for the root, -2 for ids not in the tree
+    private int[] subtreeSize = new int[0];
+    private int[] subtreeCounts = new int[0]; // AA, AS, SS count per subtree, 3 per id
+    private int[] depth = new int[0];
+    private int[] x = new int[0];
+    private int[] members = new int[0];     // ids in the tree, ascending
+    private int memberCount;
+    private int maxDepth;
+    private int[] rowStart = new int[0];     // rowIds[rowStart[d], rowStart[d + 1]) is depth d
+    private int[] rowIds = new int[0];       // sorted by x within each row
+    private int[] rowMaxSize = new int[0];   // largest subtree rooted in each row
+    private int[] rowEdgeReach = new int[0]; // widest |x(child) - x(parent)| over each row's edges
+    private int[] rowEdgeTop = new int[0];   // shallowest and deepest row those edges touch
+    private int[] rowEdgeBottom = new int[0];
+    private int[] cursor = new int[0];      // next free x inside each node's span, while placing
+    private int[] addedSize = new int[0];   // new descendants not yet passed up, during update
+    private int[] addedCounts = new int[0];
+
+    TreeLayout(PedigreeSnapshot pedigree, int root) {
+        rebuild(pedigree, root);
+    }
+
+    // Takes a newer snapshot of the same run. Appends are folded in incrementally; after a prune
+    // (which renumbers ids) the layout is rebuilt under the new root ancestor of the living.
+    void update(PedigreeSnapshot newer) {
+        if (newer.epoch() != pedigree.epoch() || newer.size() < pedigree.size()) {
+            if (newer.livingCount() > 0) rebuild(newer, newer.rootOf(newer.living(0)));
+            return;
+        }
+        int from = pedigree.size();
+        int firstNew = memberCount;
+        pedigree = newer;
+        grow(newer.size());
+        for (int id = from; id < newer.size(); id++) {
+            place(id);
+        }
+        if (memberCount == firstNew) return;
+
+        // New members pass up their whole subtree, existing ones what they were passed
+        for (int k = memberCount - 1; k > 0; k--) {
+            int id = members[k];
+            boolean fresh = id >= from;
+            int size = fresh ? subtreeSize[id] : addedSize[id];
+            if (size == 0) continue;
+            int parent = treeParent[id];
+            boolean passOn = parent < from && parent != root;
+            subtreeSize[parent] += size;
+            if (passOn) addedSize[parent] += size;
+            int[] counts = fresh ? subtreeCounts : addedCounts;
+            for (int g = 0; g < 3; g++) {
+                subtreeCounts[parent * 3 + g] += counts[id * 3 + g];
+                if (passOn) addedCounts[parent * 3 + g] += counts[id * 3 + g];
+            }
+            if (!fresh) {
+                addedSize[id] = 0;
+                addedCounts[id * 3] = addedCounts[id * 3 + 1] = addedCounts[id * 3 + 2] = 0;
+            }
+        }
+        placeNodes();
+        mergeRows(firstNew);
+        indexRows();
+    }
+
+    private void rebuild(PedigreeSnapshot snapshot, int rootId) {
+        pedigree = snapshot;
+        root = rootId;
+        int n = snapshot.size();
+        treeParent = new int[n];
+        subtreeSize = new int[n];
+        subtreeCounts = new int[n * 3];
+        depth = new int[n];
+        x = new int[n];
+        cursor = new int[n];
+        addedSize = new int[n];
+        addedCounts = new int[n * 3];
+        members = new int[Math.max(16, n - rootId)];
+        memberCount = 0;
+        maxDepth = 0;
+        Arrays.fill(treeParent, -2);
+
+        for (int id = rootId; id < n; id++) {
+            place(id);
+        }
+        for (int k = memberCount - 1; k > 0; k--) {
+            int id = members[k];
+            int parent = treeParent[id];
+            subtreeSize[parent] += subtreeSize[id];
+            for (int g = 0; g < 3; g++) subtreeCounts[parent * 3 + g] += subtreeCounts[id * 3 + g];
+        }
+        layoutCoordinates();
+    }
+
+    // Decides whether id joins the tree, and under whom. Subtree sizes are left to the caller.
+    private void place(int id) {
+        int parent;
+        if (id == root) {
+            parent = -1;
+        } else {
+            int p1 = pedigree.parent1(id), p2 = pedigree.parent2(id);
+            if (p1 >= 0 && treeParent[p1] != -2) parent = p1;
+            else if (p2 >= 0 && treeParent[p2] != -2) parent = p2;
+            else return;
+        }
+        treeParent[id] = parent;
+        subtreeSize[id] = 1;
+        subtreeCounts[id * 3 + pedigree.genotype(id)] = 1;
+        depth[id] = parent < 0 ? 0 : depth[parent] + 1;
+        maxDepth = Math.max(maxDepth, depth[id]);
+        if (memberCount == members.length) members = Arrays.copyOf(members, memberCount * 2);
+        members[memberCount++] = id;
+    }
+
+    private void grow(int n) {
+        if (n <= treeParent.length) return;
+        int capacity = Math.max(n, treeParent.length * 2);
+        int old = treeParent.length;
+        treeParent = Arrays.copyOf(treeParent, capacity);
+        Arrays.fill(treeParent, old, capacity, -2);
+        subtreeSize = Arrays.copyOf(subtreeSize, capacity);
+        subtreeCounts = Arrays.copyOf(subtreeCounts, capacity * 3);
+        depth = Arrays.copyOf(depth, capacity);
+        x = Arrays.copyOf(x, capacity);
+        cursor = new int[capacity];
+        addedSize = Arrays.copyOf(addedSize, capacity);
+        addedCounts = Arrays.copyOf(addedCounts, capacity * 3);
+    }
+
+    private void layoutCoordinates() {
+        placeNodes();
+        buildRows();
+        indexRows();
+    }
+
+    // Each subtree gets a span of subtreeSize * SLOT pixels with its root centred over it, and
+    // children's spans follow each other in birth order inside their parent's
+    private void placeNodes() {
+        for (int k = 0; k < memberCount; k++) {
+            int id = members[k];
+            int start = 0;
+            if (id != root) {
+                int parent = treeParent[id];
+                start = cursor[parent];
+                cursor[parent] += subtreeSize[id] * SLOT;
+            }
+            cursor[id] = start + SLOT / 2;
+            x[id] = start + subtreeSize[id] * SLOT / 2;
+        }
+    }
+
+    private void buildRows() {
+        int rows = maxDepth + 1;
+        rowStart = new int[rows + 1];
+        for (int k = 0; k < memberCount; k++) {
+            rowStart[depth[members[k]] + 1]++;
+        }
+        for (int d = 0; d < rows; d++) rowStart[d + 1] += rowStart[d];
+
+        // x in the high half, id in the low half, so one primitive sort orders each row
+        long[] keyed = new long[memberCount];
+        int[] fill = Arrays.copyOf(rowStart, rows);
+        for (int k = 0; k < memberCount; k++) {
+            int id = members[k];
+            keyed[fill[depth[id]]++] = ((long) x[id] << 32) | id;
+        }
+        rowIds = new int[memberCount];
+        for (int d = 0; d < rows; d++) {
+            Arrays.sort(keyed, rowStart[d], rowStart[d + 1]);
+        }
+        for (int k = 0; k < memberCount; k++) rowIds[k] = (int) keyed[k];
+    }
+
+    // Members from firstNew on join the sorted rows: sorted among themselves as in buildRows,
+    // then merged into each row by x
+    private void mergeRows(int firstNew) {
+        int rows = maxDepth + 1, oldRows = rowStart.length - 1;
+        int[] added = new int[rows + 1]; // keyed[added[d], added[d + 1]) is row d's new nodes
+        for (int k = firstNew; k < memberCount; k++) added[depth[members[k]] + 1]++;
+        for (int d = 0; d < rows; d++) added[d + 1] += added[d];
+        long[] keyed = new long[memberCount - firstNew];
+        int[] fill = Arrays.copyOf(added, rows);
+        for (int k = firstNew; k < memberCount; k++) {
+            int id = members[k];
+            keyed[fill[depth[id]]++] = ((long) x[id] << 32) | id;
+        }
+        for (int d = 0; d < rows; d++) {
+            Arrays.sort(keyed, added[d], added[d + 1]);
+        }
+
+        int[] start = new int[rows + 1];
+        int[] ids = new int[memberCount];
+        int out = 0;
+        for (int d = 0; d < rows; d++) {
+            start[d] = out;
+            int i = d < oldRows ? rowStart[d] : 0, iEnd = d < oldRows ? rowStart[d + 1] : 0;
+            int j = added[d], jEnd = added[d + 1];
+            while (i < iEnd || j < jEnd) {
+                if (j == jEnd || (i < iEnd && x[rowIds[i]] < (int) (keyed[j] >>> 32))) ids[out++] = rowIds[i++];
+                else ids[out++] = (int) keyed[j++];
+            }
+        }
+        start[rows] = out;
+        rowStart = start;
+        rowIds = ids;
+    }
+
+    // What the viewer reads per row besides the nodes: the largest subtree and the edges' extent
+    private void indexRows() {
+        int rows = maxDepth + 1;
+        rowMaxSize = new int[rows];
+        rowEdgeReach = new int[rows];
+        rowEdgeTop = new int[rows];
+        rowEdgeBottom = new int[rows];
+        for (int d = 0; d < rows; d++) rowEdgeTop[d] = rowEdgeBottom[d] = d;
+        for (int k = 0; k < memberCount; k++) {
+            int id = members[k];
+            rowMaxSize[depth[id]] = Math.max(rowMaxSize[depth[id]], subtreeSize[id]);
+            if (id != root) noteEdge(id, treeParent[id]);
+            int p1 = pedigree.parent1(id), p2 = pedigree.parent2(id);
+            int other = p1 == treeParent[id] ? p2 : p1;
+            if (other >= 0 && contains(other)) noteEdge(id, other);
+        }
+    }
+
+    private void noteEdge(int child, int parent) {
+        int d = depth[child];
+        rowEdgeReach[d] = Math.max(rowEdgeReach[d], Math.abs(x[child] - x[parent]));
+        rowEdgeTop[d] = Math.min(rowEdgeTop[d], depth[parent]);
+        rowEdgeBottom[d] = Math.max(rowEdgeBottom[d], depth[parent]);
+    }
+
+    PedigreeSnapshot pedigree() { return pedigree; }
+    int root() { return root; }
+    int nodeCount() { return memberCount; }
+    int node(int k) { return members[k]; }
+    boolean contains(int id) { return id < treeParent.length && treeParent[id] != -2; }
+    int treeParent(int id) { return treeParent[id]; }
+    int subtreeSize(int id) { return subtreeSize[id]; }
+    int depth(int id) { return depth[id]; }
+    int maxDepth() { return maxDepth; }
+    int subtreeCount(int id, int genotype) { return subtreeCounts[id * 3 + genotype]; }
+
+    int rowEnd(int depth) { return rowStart[depth + 1]; }
+    int rowNode(int k) { return rowIds[k]; }
+    int rowMaxSubtreeSize(int depth) { return rowMaxSize[depth]; }
+    int rowEdgeReach(int depth) { return rowEdgeReach[depth]; }
+    int rowEdgeTop(int depth) { return rowEdgeTop[depth]; }
+    int rowEdgeBottom(int depth) { return rowEdgeBottom[depth]; }
+
+    // Index of the first node in the row with x >= minX
+    int rowSearch(int depth, int minX) {
+        int lo = rowStart[depth], hi = rowStart[depth + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x[rowIds[mid]] < minX) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    int x(int id) { return x[id]; }
+    int y(int id) { return depth[id] * VERTICAL_SPACING; }
+
+    int width() {
+        return subtreeSize[root] * SLOT;
+    }
+
+    int height() {
+        return (maxDepth + 1) * VERTICAL_SPACING;
+    }
+}
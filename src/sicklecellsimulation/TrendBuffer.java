@@ -0,0 +1,144 @@
+package sicklecellsimulation;
+
+// Fixed-size history of the three genotype counts for the graph. Each bucket covers `span`
+// generations and keeps the min and max of every series over them. When the buffer fills up,
+// neighbouring buckets are merged pairwise and the span doubles. A million-generation run then
+// costs the same memory as a short one, and its peaks and dips still show as min/max
+// envelopes rather than being averaged away.
+//
+// With a window set, buckets that fall more than `window` generations behind the newest one
+// are dropped, which gives the rolling view.
+class TrendBuffer {
+    static final int SERIES = 3; // healthy, carriers, sickle
+
+    private final int capacity;
+    private final long window;
+    private final long[] start;
+    private final long[][] min = new long[SERIES][];
+    private final long[][] max = new long[SERIES][];
+    private int head, tail;  // live buckets are [head, tail)
+    private long span = 1;
+    private long latest = Long.MIN_VALUE;
+
+    // window <= 0 keeps the whole run
+    TrendBuffer(int capacity, long window) {
+        this.capacity = capacity;
+        this.window = window;
+        start = new long[capacity];
+        for (int s = 0; s < SERIES; s++) {
+            min[s] = new long[capacity];
+            max[s] = new long[capacity];
+        }
+    }
+
+    void clear() {
+        head = tail = 0;
+        span = 1;
+        latest = Long.MIN_VALUE;
+    }
+
+    int size() {
+        return tail - head;
+    }
+
+    void add(long generation, long healthy, long carriers, long sickle) {
+        latest = generation;
+        if (window > 0) {
+            while (tail > head && start[head] + span <= generation - window) head++;
+        }
+        if (tail == capacity) {
+            if (head > 0) shiftDown();
+            else while (tail == capacity) compact();
+        }
+        if (tail > head && generation < start[tail - 1] + span) {
+            widen(tail - 1, healthy, carriers, sickle);
+            return;
+        }
+
+        int b = tail++;
+        start[b] = generation - Math.floorMod(generation, span); // buckets stay aligned to the span
+        min[0][b] = max[0][b] = healthy;
+        min[1][b] = max[1][b] = carriers;
+        min[2][b] = max[2][b] = sickle;
+    }
+
+    private void widen(int b, long healthy, long carriers, long sickle) {
+        min[0][b] = Math.min(min[0][b], healthy);
+        max[0][b] = Math.max(max[0][b], healthy);
+        min[1][b] = Math.min(min[1][b], carriers);
+        max[1][b] = Math.max(max[1][b], carriers);
+        min[2][b] = Math.min(min[2][b], sickle);
+        max[2][b] = Math.max(max[2][b], sickle);
+    }
+
+    private void shiftDown() {
+        int n = tail - head;
+        System.arraycopy(start, head, start, 0, n);
+        for (int s = 0; s < SERIES; s++) {
+            System.arraycopy(min[s], head, min[s], 0, n);
+            System.arraycopy(max[s], head, max[s], 0, n);
+        }
+        head = 0;
+        tail = n;
+    }
+
+    // Doubles the span and merges buckets that now share a span-aligned slot
+    private void compact() {
+        span *= 2;
+        int out = -1;
+        for (int b = head; b < tail; b++) {
+            long aligned = start[b] - Math.floorMod(start[b], span);
+            if (out >= 0 && start[out] == aligned) {
+                for (int s = 0; s < SERIES; s++) {
+                    min[s][out] = Math.min(min[s][out], min[s][b]);
+                    max[s][out] = Math.max(max[s][out], max[s][b]);
+                }
+                continue;
+            }
+            out++;
+            start[out] = aligned;
+            for (int s = 0; s < SERIES; s++) {
+                min[s][out] = min[s][b];
+                max[s][out] = max[s][b];
+            }
+        }
+        head = 0;
+        tail = out + 1;
+    }
+
+    // Reduces one series to at most two points per column (the column's min and max) across
+    // the buffered range. Returns how many points were written to xs/ys, which must hold
+    // 2 * columns.
+    int downsample(int series, int columns, double[] xs, double[] ys) {
+        if (tail == head) return 0;
+        long first = start[head];
+        long range = Math.max(1, latest - first + 1);
+        long[] lo = min[series], hi = max[series];
+        int points = 0;
+        int b = head;
+        while (b < tail) {
+            int column = (int) ((start[b] - first) * columns / range);
+            long columnMin = lo[b], columnMax = hi[b];
+            long x = start[b];
+            for (b++; b < tail && (int) ((start[b] - first) * columns / range) == column; b++) {
+                columnMin = Math.min(columnMin, lo[b]);
+                columnMax = Math.max(columnMax, hi[b]);
+            }
+            xs[points] = x;
+            ys[points++] = columnMin;
+            if (columnMax != columnMin) {
+                xs[points] = x;
+                ys[points++] = columnMax;
+            }
+        }
+        return points;
+    }
+
+    long firstGeneration() {
+        return tail == head ? 0 : start[head];
+    }
+
+    long lastGeneration() {
+        return tail == head ? 0 : latest;
+    }
+}